@@ -0,0 +1,167 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A calendar of the steps at which organisms change with age: when an
+ * animal becomes old enough to breed, and when an organism dies of old
+ * age. Each organism works out the step of its next change when it is
+ * born, so nothing has to count its age up every step; the calendar hands
+ * each organism its change at the step it is due.
+ *
+ * The calendar is a timing wheel: one list of organisms for each step of
+ * a turn of the wheel. An organism due more than a turn ahead waits in its
+ * list until its turn comes round. An organism has at most one entry that
+ * counts, the one for the step recorded in it; an organism that dies in
+ * some other way, or is scheduled again, leaves its old entry behind to be
+ * dropped when that step comes.
+ *
+ * The organisms due at a step are handed their changes in the order they
+ * were scheduled. Organisms may also be scheduled from several threads at
+ * once, while the calendar is marked as concurrent; the organisms due at a
+ * step that was scheduled for then are put in order of their random keys,
+ * so the results do not depend on the threads.
+ *
+ * @author Anirudh George and Ahmet Bayazitoglu
+ * @version 2022.03.02
+ */
+public class AgeCalendar
+{
+    // The number of steps in a turn of the wheel, a power of two
+    // greater than the longest life of any organism.
+    private static final int WHEEL_SIZE = 512;
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+    // The order in which the organisms due at a step change.
+    private static final Comparator<Organism> ORDER = Comparator.comparingLong(Organism::getRandomKey);
+
+    // The organisms scheduled for each step of a turn of the wheel.
+    private List<List<Organism>> wheel;
+    // The organisms due at the step being run.
+    private List<Organism> due = new ArrayList<>();
+    // Whether organisms are being scheduled from several threads, and whether
+    // each step of the wheel has been scheduled for while they were.
+    private volatile boolean concurrent;
+    private boolean[] unordered = new boolean[WHEEL_SIZE];
+
+    /**
+     * Create an empty calendar.
+     */
+    public AgeCalendar()
+    {
+        wheel = new ArrayList<>(WHEEL_SIZE);
+        for(int i = 0; i < WHEEL_SIZE; i++) {
+            wheel.add(new ArrayList<>());
+        }
+    }
+
+    /**
+     * Schedule the next change of an organism, replacing any it had.
+     * @param organism The organism.
+     * @param step The step at which it is due.
+     */
+    public void schedule(Organism organism, int step)
+    {
+        organism.dueStep = step;
+        List<Organism> entries = wheel.get(step & WHEEL_MASK);
+        synchronized(entries) {
+            entries.add(organism);
+            if(concurrent) {
+                unordered[step & WHEEL_MASK] = true;
+            }
+        }
+    }
+
+    /**
+     * Mark whether organisms are being scheduled from several threads at once.
+     * @param concurrent true while organisms are scheduled from several threads.
+     */
+    public void setConcurrent(boolean concurrent)
+    {
+        this.concurrent = concurrent;
+    }
+
+    /**
+     * Hand the organisms due at the given step their changes with age.
+     * @param step The step being run.
+     */
+    public void advance(int step)
+    {
+        List<Organism> entries = wheel.get(step & WHEEL_MASK);
+        int kept = 0;
+        for(int i = 0; i < entries.size(); i++) {
+            Organism organism = entries.get(i);
+            if(organism.isAlive() && organism.dueStep == step) {
+                due.add(organism);
+            }
+            else if(organism.isAlive() && organism.dueStep > step &&
+                    (organism.dueStep & WHEEL_MASK) == (step & WHEEL_MASK)) {
+                // Due on a later turn of the wheel.
+                entries.set(kept++, organism);
+            }
+        }
+        entries.subList(kept, entries.size()).clear();
+        if(unordered[step & WHEEL_MASK]) {
+            due.sort(ORDER);
+            unordered[step & WHEEL_MASK] = false;
+        }
+        for(Organism organism : due) {
+            // An organism scheduled twice for the step only changes once.
+            if(organism.isAlive() && organism.dueStep == step) {
+                organism.dueStep = -1;
+                organism.ageDue();
+            }
+        }
+        due.clear();
+    }
+
+    /**
+     * Write the live organisms in each list of the wheel to a checkpoint,
+     * in order. The step each is due at is written with the organism.
+     * @param out The checkpoint being written.
+     */
+    void write(Checkpoint.Output out) throws IOException
+    {
+        for(List<Organism> entries : wheel) {
+            int count = 0;
+            for(Organism organism : entries) {
+                if(organism.isAlive()) {
+                    count++;
+                }
+            }
+            out.putInt(count);
+            for(Organism organism : entries) {
+                if(organism.isAlive()) {
+                    out.putOrganism(organism);
+                }
+            }
+        }
+    }
+
+    /**
+     * Read the lists of the wheel from a checkpoint.
+     * @param in The checkpoint being read.
+     */
+    void read(Checkpoint.Input in) throws IOException
+    {
+        clear();
+        for(List<Organism> entries : wheel) {
+            int count = in.getInt();
+            for(int i = 0; i < count; i++) {
+                entries.add(in.getOrganism());
+            }
+        }
+    }
+
+    /**
+     * Remove every organism from the calendar.
+     */
+    public void clear()
+    {
+        for(List<Organism> entries : wheel) {
+            entries.clear();
+        }
+        Arrays.fill(unordered, false);
+    }
+}
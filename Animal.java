@@ -1,3 +1,4 @@
+import java.io.IOException;
 import java.util.List;
 import java.util.Random;
 /**
@@ -11,12 +12,18 @@ public abstract class Animal extends Organism
 {
     //The gender of the animal.
     public Gender gender;
-    //A shared random number generator to control disease.
-    private Random rand = new Random();
+    //A random number generator to choose genders.
+    private static final Random rand = Randomizer.getRandom();
     //Whether the animal has the disease or not.
     private boolean hasDisease;
-    //The chance an animal gets infected
-    private double INFECTION_PROBABILITY = 0.00005;
+    //The step at which the animal was born, from which its age follows,
+    //and whether it has been set yet.
+    private int birthStep;
+    private boolean born;
+    //Whether the animal is filed in the field's mating index, and where.
+    //These are maintained by the MatingIndex.
+    boolean mating;
+    int matingKey, matingSlot;
     public enum Gender {
         MALE,
         FEMALE
@@ -34,11 +41,95 @@ public abstract class Animal extends Organism
         this.gender = gender;
     }
     
+    /**
+     * Bring a dead animal back to life at location in field, free of the disease.
+     * 
+     * @param field The field to be occupied.
+     * @param location The location within the field.
+     * @param gender The gender of the animal
+     */
+    protected void revive(Field field, Location location, Gender gender)
+    {
+        this.gender = gender;
+        hasDisease = false;
+        born = false;
+        revive(field, location);
+    }
+    
     /**
      * Abstract act() method overriden in the individual animal subclasses
      */
     abstract protected void act(List<Organism> newAnimals);
     
+    /**
+     * Abstract rest() method overriden in the individual animal subclasses:
+     * a sleeping animal only grows hungrier.
+     */
+    abstract protected void rest();
+    
+    /**
+     * Abstract getTraits() method overriden in the individual animal subclasses.
+     * @return The characteristics of the animal's species.
+     */
+    abstract protected AnimalTraits getTraits();
+    
+    /**
+     * Return the animal's age, in steps. An animal whose age has
+     * not been set yet counts as a newborn.
+     * @return The age of the animal.
+     */
+    protected int getAge()
+    {
+        if(!born) {
+            return 0;
+        }
+        return field.getClock().getStep() - birthStep;
+    }
+    
+    /**
+     * Set the animal's age, and schedule its next change with age
+     * in the field's age calendar.
+     * @param age The age of the animal.
+     */
+    protected void setAge(int age)
+    {
+        AnimalTraits traits = getTraits();
+        birthStep = field.getClock().getStep() - age;
+        born = true;
+        if(age < traits.breedingAge) {
+            field.getAgeCalendar().schedule(this, birthStep + traits.breedingAge);
+        }
+        else {
+            field.getAgeCalendar().schedule(this, birthStep + traits.maxAge + 1);
+        }
+    }
+    
+    /**
+     * The animal is old enough to breed, or has grown too old and dies.
+     */
+    protected void ageDue()
+    {
+        AnimalTraits traits = getTraits();
+        if(getAge() > traits.maxAge) {
+            setDead();
+        }
+        else {
+            updateMatingIndex();
+            field.getAgeCalendar().schedule(this, birthStep + traits.maxAge + 1);
+        }
+    }
+    
+    /**
+     * Return whether the animal sleeps through the given phase of the day.
+     * Each species of animal sleeps through one phase.
+     * @param phase The phase of the day.
+     * @return true if the animal sleeps through the phase.
+     */
+    protected boolean sleepsIn(Clock.Phase phase)
+    {
+        return getTraits().sleepPhase == phase;
+    }
+    
     /**
      * Abstract canBreed() method overriden in the individual animal subclasses
      */
@@ -54,37 +145,121 @@ public abstract class Animal extends Organism
      */
     abstract protected void giveBirth(List<Organism> newAnimals, int steps);
     
+    /**
+     * Abstract breed() method overriden in the individual animal subclasses.
+     * @return The number of births (may be zero).
+     */
+    abstract protected int breed();
+    
+    /**
+     * Abstract eat() method overriden in the individual animal subclasses.
+     * @param food The organism being eaten, which dies.
+     */
+    abstract protected void eat(Organism food);
+    
     /**
      * The animals can meet within a distance of each other(set by the number of steps in the adjacentNlocations method)
      * 
-     * Checks whether the animal objects in the other locations or the current animal object have the disease after calling the getsInfected() method 
-     * which could result in both animals getting the disease.
-     * The disease therefore spreads and stops the animals giving birth.
+     * Partners are found through the field's mating index, so only animals of the same class
+     * and the opposite gender that are old enough to breed are looked at.
+     * Animals with the disease do not give birth; the disease itself is spread by the field's Disease.
      * 
      * @param newOrganisms have been given birth by two animals of the same class with opposite genders ensuring they can both breed.
      */
     protected void meet(List<Organism> newOrganisms) {
         int steps = 10;
-        List<Location> locations = field.adjacentNLocations(getLocation(), steps);
-        this.getsInfected();
-        
-        for (int i = 0; i < locations.size(); i++) {
-            if (field.getObjectAt(locations.get(i)) != null && field.getObjectAt(locations.get(i)).getClass() != Plant.class) {
-                Animal animalObject =(Animal) field.getObjectAt(locations.get(i));
-                if (animalObject != null) {
-                    animalObject.getsInfected();
-                    if(animalObject.hasDisease == true || this.hasDisease == true){
-                        animalObject.hasDisease = true;
-                        this.hasDisease = true;
-                        break;
-                    }
-                    else{                           
-                        if (animalObject.getClass()==this.getClass()&& animalObject.getGender()!= this.getGender()&& (animalObject.canBreed() && this.canBreed())){
-                                giveBirth(newOrganisms, steps);
-                        } 
-                    }
+        if(this.hasDisease == false && canBreed()) {
+            field.getMatingIndex().forEachPartner(this, steps + 1, partner -> {
+                if(partner.hasDisease == false) {
+                    giveBirth(newOrganisms, steps);
                 }
-            }     
+            });
+        }
+    }
+    
+    /**
+     * Plan the births from meeting partners, for the two-phase step mode.
+     * The births are only recorded, and are born when the intents are settled.
+     * @param intents The intents of the organisms for this step.
+     */
+    protected void meet(StepIntents intents) {
+        int steps = 10;
+        if(this.hasDisease == false && canBreed()) {
+            field.getMatingIndex().forEachPartner(this, steps + 1, partner -> {
+                if(partner.hasDisease == false) {
+                    intents.birth(this, breed(), steps + 1);
+                }
+            });
+        }
+    }
+    
+    /**
+     * Plan a meal of the nearest food in range, or else a move to a free
+     * adjacent location, for the two-phase step mode. Whether the animal
+     * dies of overcrowding is only settled once the other organisms have moved.
+     * @param intents The intents of the organisms for this step.
+     * @param diet The mask of the species the animal eats.
+     */
+    protected void forage(StepIntents intents, int diet)
+    {
+        Location where = field.nearestOccupant(location, 3, diet);
+        if(where != null) {
+            intents.eat(this, (Organism) field.getObjectAt(where));
+            return;
+        }
+        // Plants are trampled, so count as free.
+        try(Field.Neighbourhood cells = field.neighbours(location, 1)) {
+            while(cells.next()) {
+                Species species = cells.getSpecies();
+                if(species == Species.EMPTY || species == Species.PLANT) {
+                    intents.move(this, cells.getLocation());
+                    return;
+                }
+            }
+        }
+        intents.move(this, null);
+    }
+    
+    /**
+     * Place the animal at the new location, keeping its entries in the
+     * mating index and the disease grid up to date.
+     * @param newLocation The animal's new location.
+     */
+    protected void setLocation(Location newLocation)
+    {
+        if(hasDisease && location != null) {
+            field.getDisease().mark(location, false);
+        }
+        super.setLocation(newLocation);
+        if(hasDisease) {
+            field.getDisease().mark(newLocation, true);
+        }
+        updateMatingIndex();
+    }
+    
+    /**
+     * Indicate that the animal is no longer alive.
+     * It is removed from the field, the mating index and the disease grid.
+     */
+    protected void setDead()
+    {
+        if(field != null) {
+            field.getMatingIndex().remove(this);
+            if(hasDisease && location != null) {
+                field.getDisease().mark(location, false);
+            }
+        }
+        super.setDead();
+    }
+    
+    /**
+     * Bring the animal's entry in the field's mating index up to date.
+     * This must be called whenever the animal's ability to breed changes.
+     */
+    protected void updateMatingIndex()
+    {
+        if(field != null) {
+            field.getMatingIndex().update(this);
         }
     }
       
@@ -104,23 +279,47 @@ public abstract class Animal extends Organism
     }
     
     /**
-     * This method will tell us whether an animal becomes infected or not.
-     * If the animal doesn't have the disease, the animal becomes infected or not based on its random infection rate.
+     * Write the animal's own state to a checkpoint. Its gender is written for it.
+     * @param out The checkpoint being written.
      */
-    protected void getsInfected() {
-        if (hasDisease == false) {
-            Random infectedRate = Randomizer.getRandom();
-            if (infectedRate.nextDouble() < INFECTION_PROBABILITY) {
-                   hasDisease = true;
-            }
-        }
+    protected void writeState(Checkpoint.Output out) throws IOException
+    {
+        super.writeState(out);
+        out.putInt(birthStep);
+        out.putBoolean(born);
+        out.putBoolean(hasDisease);
+    }
+    
+    /**
+     * Read the animal's own state from a checkpoint. Its entries in the
+     * mating index and the disease grid are read with the field.
+     * @param in The checkpoint being read.
+     */
+    protected void readState(Checkpoint.Input in) throws IOException
+    {
+        super.readState(in);
+        birthStep = in.getInt();
+        born = in.getBoolean();
+        hasDisease = in.getBoolean();
+        mating = false;
+    }
+    
+    /**
+     * @return Whether the animal has the disease.
+     */
+    public boolean hasDisease()
+    {
+        return hasDisease;
     }
     
     /**
-     * This method is to keep animals at the same space when they need to sleep.
+     * Give the animal the disease.
      */
-    public void sleep(){
-        location = location;
-        field = field;
+    protected void infect()
+    {
+        if (hasDisease == false) {
+            hasDisease = true;
+            field.getDisease().mark(getLocation(), true);
+        }
     }
 }
\ No newline at end of file
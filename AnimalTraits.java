@@ -0,0 +1,70 @@
+/**
+ * The fixed characteristics of a species of animal, for code that works on
+ * animals without their objects, such as the struct-of-arrays simulation,
+ * or on all the animals of a species at once.
+ * Each species of animal keeps its own traits, made from its constants.
+ *
+ * @author Anirudh George and Ahmet Bayazitoglu
+ * @version 2022.03.02
+ */
+public class AnimalTraits
+{
+    // The age at which the animal can start to breed, and the age to which it can live.
+    final int breedingAge, maxAge;
+    // The likelihood of the animal breeding, and the maximum number of births.
+    final double breedingProbability;
+    final int maxLitterSize;
+    // The food level of a newborn, and the bound on the random
+    // food level of an animal created with a random age.
+    final int newbornFood, randomFoodBound;
+    // The food value of each species, indexed by species, or zero if it is not eaten.
+    final int[] foodValues = new int[Species.values().length];
+    // The mask of the species the animal eats.
+    int diet;
+    // The phase of the day the animal sleeps through.
+    Clock.Phase sleepPhase;
+
+    /**
+     * Create the traits of a species of animal that eats nothing yet.
+     * @param breedingAge The age at which the animal can start to breed.
+     * @param maxAge The age to which the animal can live.
+     * @param breedingProbability The likelihood of the animal breeding.
+     * @param maxLitterSize The maximum number of births.
+     * @param newbornFood The food level of a newborn.
+     * @param randomFoodBound The bound on the food level of an animal created with a random age.
+     */
+    public AnimalTraits(int breedingAge, int maxAge, double breedingProbability, int maxLitterSize,
+                        int newbornFood, int randomFoodBound)
+    {
+        this.breedingAge = breedingAge;
+        this.maxAge = maxAge;
+        this.breedingProbability = breedingProbability;
+        this.maxLitterSize = maxLitterSize;
+        this.newbornFood = newbornFood;
+        this.randomFoodBound = randomFoodBound;
+    }
+
+    /**
+     * Add a species to those the animal eats.
+     * @param food The species eaten.
+     * @param value The food value of one of them.
+     * @return These traits.
+     */
+    public AnimalTraits eats(Species food, int value)
+    {
+        foodValues[food.ordinal()] = value;
+        diet |= food.getMask();
+        return this;
+    }
+
+    /**
+     * Set the phase of the day the animal sleeps through.
+     * @param phase The phase.
+     * @return These traits.
+     */
+    public AnimalTraits sleepsIn(Clock.Phase phase)
+    {
+        sleepPhase = phase;
+        return this;
+    }
+}
@@ -0,0 +1,639 @@
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * A simulation without a view in which the organisms are kept in a
+ * struct-of-arrays store, one SpeciesArrays for each species, rather than
+ * as objects. The field is a single array holding the species and index of
+ * the occupant of each cell, and the behaviour of each species runs over
+ * the arrays in tight loops.
+ *
+ * The rules are those of the animals and plants, with their constants taken
+ * from the species classes, but a step is laid out for the arrays:
+ * - the disease spreads, as in Disease;
+ * - every organism ages and grows hungry, in one loop for each species;
+ * - the organisms act, a species at a time: plants seed, and animals meet,
+ *   feed and move, as in their act methods, unless the species sleeps at
+ *   this time of day;
+ * - the dead are removed from the arrays.
+ * Partners are counted from the animals able to breed at the start of the
+ * step. A plant that an animal moves or is born onto is trampled and dies,
+ * where an object plant would linger off the field.
+ *
+ * @author Anirudh George and Ahmet Bayazitoglu
+ * @version 2022.03.02
+ */
+public class ArraySimulation
+{
+    // How far away an animal looks for food.
+    private static final int FOOD_RADIUS = 3;
+    // How far away an animal meets partners, and its young may be born.
+    private static final int MEETING_RADIUS = 11;
+    // All the species, and the number of them.
+    private static final Species[] SPECIES = Species.values();
+    private static final int SPECIES_COUNT = SPECIES.length;
+    // The number of bits of an occupant used for the index of the organism.
+    private static final int INDEX_BITS = 24;
+
+    // The depth and width of the field.
+    private int depth, width;
+    // The probabilities of creating each species when the field is populated.
+    private CreationProbabilities probabilities;
+    // The organisms of each species, indexed by species.
+    private SpeciesArrays[] store = new SpeciesArrays[SPECIES_COUNT];
+    // The characteristics of each species of animal, indexed by species, or null.
+    private AnimalTraits[] traits = new AnimalTraits[SPECIES_COUNT];
+    // The occupant of each cell, or 0 if the cell is empty.
+    private int[] occupants;
+    // The cells of the healthy animals able to breed, keyed by species and
+    // gender, and of the infected animals, kept by bucket so that those
+    // nearby can be counted. Both are rebuilt from the arrays each step.
+    private CellBuckets breeders, infected;
+    // The chance of infection, indexed by the number of infected animals nearby.
+    private double[] infectionChance;
+    // The age at which a plant has grown beyond its maximum height.
+    private int plantMaxGrowthAge;
+    // The offsets of the neighbourhood of each radius, as row and column pairs.
+    // They are shuffled in place as they are walked; starting a shuffle from
+    // whatever order the last one left still gives a uniformly random order.
+    private int[][] offsets = new int[MEETING_RADIUS + 1][];
+    // Room for the cells of the food found at the same distance.
+    private int[] candidates;
+    // The current step of the simulation, and the number of infected animals.
+    private int step;
+    private int infectedCount;
+    // The time of day, which moves on with the step.
+    private Clock clock = new Clock();
+
+    /**
+     * Create a simulation of the given size, populated with the given probabilities.
+     * @param depth Depth of the field. Must be greater than zero.
+     * @param width Width of the field. Must be greater than zero.
+     * @param probabilities The probabilities of creating each species.
+     */
+    public ArraySimulation(int depth, int width, CreationProbabilities probabilities)
+    {
+        this.depth = depth;
+        this.width = width;
+        this.probabilities = probabilities;
+        occupants = new int[depth * width];
+        breeders = new CellBuckets(depth, width, SPECIES_COUNT * 2);
+        infected = new CellBuckets(depth, width, 1);
+        for(Species species : SPECIES) {
+            if(species != Species.EMPTY) {
+                store[species.ordinal()] = new SpeciesArrays(species);
+            }
+        }
+        traits[Species.TORTOISE.ordinal()] = Tortoise.TRAITS;
+        traits[Species.DEER.ordinal()] = Deer.TRAITS;
+        traits[Species.JAGUAR.ordinal()] = Jaguar.TRAITS;
+        traits[Species.BEAR.ordinal()] = Bear.TRAITS;
+        traits[Species.TIGER.ordinal()] = Tiger.TRAITS;
+
+        int side = 2 * Disease.RADIUS + 1;
+        infectionChance = new double[side * side];
+        for(int count = 0; count < infectionChance.length; count++) {
+            infectionChance[count] = Disease.infectionChance(count);
+        }
+        plantMaxGrowthAge = 0;
+        for(double height = 1; height <= Plant.MAX_HEIGHT; height *= Plant.GROWTH_RATE) {
+            plantMaxGrowthAge++;
+        }
+        for(int radius = 1; radius <= MEETING_RADIUS; radius++) {
+            offsets[radius] = makeOffsets(radius);
+        }
+        candidates = new int[offsets[FOOD_RADIUS].length / 2];
+        reset();
+    }
+
+    /**
+     * Run a simulation from the command line, printing the population at
+     * the end. The arguments are the depth and width of the field, the seed,
+     * and the number of steps.
+     * @param args The command line arguments.
+     */
+    public static void main(String[] args)
+    {
+        if(args.length < 4) {
+            System.out.println("Usage: java ArraySimulation depth width seed steps");
+            return;
+        }
+        Randomizer.setSeed(Long.parseLong(args[2]));
+        ArraySimulation simulation = new ArraySimulation(Integer.parseInt(args[0]),
+                                                         Integer.parseInt(args[1]),
+                                                         new CreationProbabilities());
+        long start = System.nanoTime();
+        simulation.simulate(Integer.parseInt(args[3]));
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        int[] population = simulation.getPopulation();
+        StringBuilder line = new StringBuilder("Step " + simulation.getStep() + ":");
+        for(Species species : SPECIES) {
+            if(species != Species.EMPTY) {
+                line.append(' ').append(species.getType().getName())
+                    .append(": ").append(population[species.ordinal()]);
+            }
+        }
+        System.out.println(line + " Infected: " + simulation.getInfectedCount() + " (" + millis + " ms)");
+    }
+
+    /**
+     * Run the simulation for the given number of steps.
+     * Stop before the given number of steps if it ceases to be viable.
+     * @param numSteps The number of steps to run for.
+     */
+    public void simulate(int numSteps)
+    {
+        for(int i = 1; i <= numSteps && isViable(); i++) {
+            simulateOneStep();
+        }
+    }
+
+    /**
+     * Run the simulation for a single step.
+     */
+    public void simulateOneStep()
+    {
+        step++;
+        clock.setStep(step);
+        spreadDisease();
+        countBreeders();
+        for(Species species : SPECIES) {
+            if(species == Species.PLANT) {
+                agePlants(store[species.ordinal()]);
+            }
+            else if(species != Species.EMPTY) {
+                ageAnimals(store[species.ordinal()], traits[species.ordinal()]);
+            }
+        }
+        for(Species species : SPECIES) {
+            if(species == Species.PLANT) {
+                actPlants(store[species.ordinal()]);
+            }
+            else if(species != Species.EMPTY && traits[species.ordinal()].sleepPhase != clock.getPhase()) {
+                actAnimals(store[species.ordinal()], traits[species.ordinal()]);
+            }
+        }
+        Randomizer.endStream();
+        for(Species species : SPECIES) {
+            if(species != Species.EMPTY) {
+                store[species.ordinal()].compact(occupants);
+            }
+        }
+    }
+
+    /**
+     * Reset the simulation to a starting position.
+     */
+    public void reset()
+    {
+        step = 0;
+        clock.setStep(step);
+        infectedCount = 0;
+        Arrays.fill(occupants, 0);
+        for(SpeciesArrays arrays : store) {
+            if(arrays != null) {
+                arrays.clear();
+            }
+        }
+        populate();
+    }
+
+    /**
+     * Determine whether the simulation is still viable.
+     * @return true If there is more than one species alive.
+     */
+    public boolean isViable()
+    {
+        int alive = 0;
+        for(SpeciesArrays arrays : store) {
+            if(arrays != null && arrays.size > 0) {
+                alive++;
+            }
+        }
+        return alive > 1;
+    }
+
+    /**
+     * Count the organisms of each species.
+     * @return The number of organisms, indexed by species.
+     */
+    public int[] getPopulation()
+    {
+        int[] counts = new int[SPECIES_COUNT];
+        for(SpeciesArrays arrays : store) {
+            if(arrays != null) {
+                counts[arrays.species.ordinal()] = arrays.size;
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * @return The current step of the simulation.
+     */
+    public int getStep()
+    {
+        return step;
+    }
+
+    /**
+     * @return The number of infected animals after the last spread of the disease.
+     */
+    public int getInfectedCount()
+    {
+        return infectedCount;
+    }
+
+    /**
+     * Return the occupant value of an organism.
+     * @param species The organism's species.
+     * @param index The organism's index in the arrays of its species.
+     * @return The value kept in the organism's cell.
+     */
+    static int occupant(Species species, int index)
+    {
+        return ((species.ordinal() << INDEX_BITS) | index) + 1;
+    }
+
+    /**
+     * Randomly populate the field, as Simulator does.
+     */
+    private void populate()
+    {
+        Random rand = Randomizer.getRandom();
+        Species[] order = {
+            Species.JAGUAR, Species.TORTOISE, Species.BEAR, Species.DEER, Species.TIGER
+        };
+        for(int cell = 0; cell < occupants.length; cell++) {
+            Species created = null;
+            for(Species species : order) {
+                if(rand.nextDouble() <= probabilities.get(species)) {
+                    created = species;
+                    break;
+                }
+            }
+            if(created != null) {
+                AnimalTraits animal = traits[created.ordinal()];
+                byte flags = rand.nextDouble() > 0.5 ? 0 : SpeciesArrays.FEMALE;
+                int age = rand.nextInt(animal.maxAge);
+                add(created, cell, age, rand.nextInt(animal.randomFoodBound), flags);
+            }
+            else if(rand.nextDouble() <= probabilities.get(Species.PLANT)) {
+                add(Species.PLANT, cell, 0, 0, (byte) 0);
+            }
+        }
+    }
+
+    /**
+     * Spread the disease: infect each healthy animal with a chance that
+     * grows with the number of infected animals nearby at the start of the step.
+     */
+    private void spreadDisease()
+    {
+        infected.clear();
+        for(SpeciesArrays arrays : store) {
+            if(arrays == null || arrays.species == Species.PLANT) {
+                continue;
+            }
+            for(int i = 0; i < arrays.size; i++) {
+                if((arrays.flags[i] & SpeciesArrays.DISEASED) != 0) {
+                    int cell = arrays.cell[i];
+                    infected.add(0, cell / width, cell % width);
+                }
+            }
+        }
+        infected.build();
+        Random rand = Randomizer.getRandom();
+        int radius = Disease.RADIUS;
+        infectedCount = 0;
+        for(SpeciesArrays arrays : store) {
+            if(arrays == null || arrays.species == Species.PLANT) {
+                continue;
+            }
+            for(int i = 0; i < arrays.size; i++) {
+                if((arrays.flags[i] & SpeciesArrays.DISEASED) != 0) {
+                    infectedCount++;
+                    continue;
+                }
+                int cell = arrays.cell[i];
+                int nearby = infected.count(0, cell / width, cell % width, radius);
+                if(rand.nextDouble() < infectionChance[nearby]) {
+                    arrays.flags[i] |= SpeciesArrays.DISEASED;
+                    infectedCount++;
+                }
+            }
+        }
+    }
+
+    /**
+     * File the cells of the healthy animals able to breed by species and gender.
+     */
+    private void countBreeders()
+    {
+        breeders.clear();
+        for(Species species : SPECIES) {
+            AnimalTraits animal = traits[species.ordinal()];
+            if(animal == null) {
+                continue;
+            }
+            SpeciesArrays arrays = store[species.ordinal()];
+            for(int i = 0; i < arrays.size; i++) {
+                byte flags = arrays.flags[i];
+                if((flags & (SpeciesArrays.DISEASED | SpeciesArrays.DEAD)) == 0 &&
+                   arrays.age[i] >= animal.breedingAge) {
+                    int cell = arrays.cell[i];
+                    breeders.add(species.ordinal() * 2 + (flags & SpeciesArrays.FEMALE),
+                                 cell / width, cell % width);
+                }
+            }
+        }
+        breeders.build();
+    }
+
+    /**
+     * Make every plant older. This could result in their death.
+     */
+    private void agePlants(SpeciesArrays plants)
+    {
+        short[] age = plants.age;
+        for(int i = 0; i < plants.size; i++) {
+            age[i]++;
+            if(age[i] > Plant.MAX_AGE) {
+                kill(plants, i);
+            }
+        }
+    }
+
+    /**
+     * Make every animal of a species older and more hungry.
+     * This could result in their death.
+     */
+    private void ageAnimals(SpeciesArrays animals, AnimalTraits animal)
+    {
+        short[] age = animals.age;
+        short[] food = animals.food;
+        for(int i = 0; i < animals.size; i++) {
+            age[i]++;
+            food[i]--;
+            if(age[i] > animal.maxAge || food[i] <= 0) {
+                kill(animals, i);
+            }
+        }
+    }
+
+    /**
+     * Let the plants that were alive at the start of the step seed into
+     * empty adjacent cells, and die once they grow too tall.
+     */
+    private void actPlants(SpeciesArrays plants)
+    {
+        Random rand = Randomizer.getRandom();
+        int count = plants.size;
+        for(int i = 0; i < count; i++) {
+            if(!plants.isAlive(i)) {
+                continue;
+            }
+            int cell = plants.cell[i];
+            Randomizer.beginStream(step, randomKey(Species.PLANT, cell));
+            int row = cell / width;
+            int col = cell % width;
+            int[] table = offsets[1];
+            int n = table.length / 2;
+            for(int k = 0; k < n; k++) {
+                swap(table, k, k + rand.nextInt(n - k));
+                int r = row + table[2 * k];
+                int c = col + table[2 * k + 1];
+                if(r >= 0 && r < depth && c >= 0 && c < width && occupants[r * width + c] == 0 &&
+                   rand.nextDouble() < Plant.PLANT_GROWTH_PROBABILITY) {
+                    add(Species.PLANT, r * width + c, 0, 0, (byte) 0);
+                }
+            }
+            // A plant's height follows from its age.
+            if(plants.age[i] - 1 >= plantMaxGrowthAge) {
+                kill(plants, i);
+            }
+        }
+    }
+
+    /**
+     * Let the animals of a species that were alive at the start of the step
+     * meet, feed and move.
+     */
+    private void actAnimals(SpeciesArrays animals, AnimalTraits animal)
+    {
+        Random rand = Randomizer.getRandom();
+        Species species = animals.species;
+        int count = animals.size;
+        for(int i = 0; i < count; i++) {
+            if(!animals.isAlive(i)) {
+                continue;
+            }
+            int cell = animals.cell[i];
+            Randomizer.beginStream(step, randomKey(species, cell));
+            byte flags = animals.flags[i];
+            if((flags & SpeciesArrays.DISEASED) == 0 && animals.age[i] >= animal.breedingAge) {
+                int opposite = species.ordinal() * 2 + 1 - (flags & SpeciesArrays.FEMALE);
+                int partners = breeders.count(opposite, cell / width, cell % width, MEETING_RADIUS);
+                for(int p = 0; p < partners; p++) {
+                    if(rand.nextDouble() <= animal.breedingProbability) {
+                        bear(species, animal, cell, rand.nextInt(animal.maxLitterSize) + 1);
+                    }
+                }
+            }
+
+            int target = findFood(cell, animal.diet);
+            if(target >= 0) {
+                int prey = occupants[target] - 1;
+                SpeciesArrays eaten = store[prey >>> INDEX_BITS];
+                animals.food[i] = (short) animal.foodValues[eaten.species.ordinal()];
+                kill(eaten, prey & ((1 << INDEX_BITS) - 1));
+            }
+            else {
+                target = freeAdjacent(cell);
+            }
+            if(target >= 0) {
+                move(animals, i, target);
+            }
+            else {
+                // Overcrowding.
+                kill(animals, i);
+            }
+        }
+    }
+
+    /**
+     * Bear young into free cells around a parent.
+     */
+    private void bear(Species species, AnimalTraits animal, int cell, int births)
+    {
+        Random rand = Randomizer.getRandom();
+        int row = cell / width;
+        int col = cell % width;
+        int[] table = offsets[MEETING_RADIUS];
+        int n = table.length / 2;
+        for(int k = 0; k < n && births > 0; k++) {
+            swap(table, k, k + rand.nextInt(n - k));
+            int r = row + table[2 * k];
+            int c = col + table[2 * k + 1];
+            if(r >= 0 && r < depth && c >= 0 && c < width && isFree(r * width + c)) {
+                trample(r * width + c);
+                byte flags = rand.nextInt(2) == 0 ? 0 : SpeciesArrays.FEMALE;
+                add(species, r * width + c, 0, animal.newbornFood, flags);
+                births--;
+            }
+        }
+    }
+
+    /**
+     * Find the nearest food of the given diet within reach of a cell,
+     * picked at random from the nearest if there are several.
+     * @return The cell of the food, or -1 if there is none.
+     */
+    private int findFood(int cell, int diet)
+    {
+        int row = cell / width;
+        int col = cell % width;
+        for(int radius = 1; radius <= FOOD_RADIUS; radius++) {
+            int found = 0;
+            for(int r = row - radius; r <= row + radius; r++) {
+                if(r < 0 || r >= depth) {
+                    continue;
+                }
+                // Only the edge of the square is at this distance.
+                int stride = (r == row - radius || r == row + radius) ? 1 : 2 * radius;
+                for(int c = col - radius; c <= col + radius; c += stride) {
+                    if(c >= 0 && c < width) {
+                        int occupant = occupants[r * width + c];
+                        if(occupant != 0 && (diet & (1 << ((occupant - 1) >>> INDEX_BITS))) != 0) {
+                            candidates[found++] = r * width + c;
+                        }
+                    }
+                }
+            }
+            if(found > 0) {
+                return candidates[found == 1 ? 0 : Randomizer.getRandom().nextInt(found)];
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Find a free cell adjacent to the given one, picked at random.
+     * @return The free cell, or -1 if there is none.
+     */
+    private int freeAdjacent(int cell)
+    {
+        Random rand = Randomizer.getRandom();
+        int row = cell / width;
+        int col = cell % width;
+        int[] table = offsets[1];
+        int n = table.length / 2;
+        for(int k = 0; k < n; k++) {
+            swap(table, k, k + rand.nextInt(n - k));
+            int r = row + table[2 * k];
+            int c = col + table[2 * k + 1];
+            if(r >= 0 && r < depth && c >= 0 && c < width && isFree(r * width + c)) {
+                return r * width + c;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Swap two offsets of a table.
+     */
+    private static void swap(int[] table, int a, int b)
+    {
+        int row = table[2 * a];
+        int col = table[2 * a + 1];
+        table[2 * a] = table[2 * b];
+        table[2 * a + 1] = table[2 * b + 1];
+        table[2 * b] = row;
+        table[2 * b + 1] = col;
+    }
+
+    /**
+     * @return Whether an animal may move or be born into the cell:
+     *         it is empty or holds a plant.
+     */
+    private boolean isFree(int cell)
+    {
+        int occupant = occupants[cell];
+        return occupant == 0 || (occupant - 1) >>> INDEX_BITS == Species.PLANT.ordinal();
+    }
+
+    /**
+     * Kill the plant in a cell, if there is one.
+     */
+    private void trample(int cell)
+    {
+        int occupant = occupants[cell] - 1;
+        if(occupant >= 0) {
+            kill(store[occupant >>> INDEX_BITS], occupant & ((1 << INDEX_BITS) - 1));
+        }
+    }
+
+    /**
+     * Move an organism into a free cell.
+     */
+    private void move(SpeciesArrays arrays, int index, int target)
+    {
+        trample(target);
+        occupants[arrays.cell[index]] = 0;
+        arrays.cell[index] = target;
+        occupants[target] = occupant(arrays.species, index);
+    }
+
+    /**
+     * Add an organism in an empty cell.
+     */
+    private void add(Species species, int cell, int age, int food, byte flags)
+    {
+        if(store[species.ordinal()].size == 1 << INDEX_BITS) {
+            throw new IllegalStateException("Too many organisms of one species: " + species);
+        }
+        int index = store[species.ordinal()].add(cell, age, food, flags);
+        occupants[cell] = occupant(species, index);
+    }
+
+    /**
+     * Flag an organism as dead and clear its cell.
+     */
+    private void kill(SpeciesArrays arrays, int index)
+    {
+        if(arrays.isAlive(index)) {
+            arrays.flags[index] |= SpeciesArrays.DEAD;
+            occupants[arrays.cell[index]] = 0;
+        }
+    }
+
+    /**
+     * Return the key of an organism's random numbers for a step, made
+     * the same way as Organism.getRandomKey.
+     */
+    private long randomKey(Species species, int cell)
+    {
+        long position = ((long) (cell / width) << 32) | (cell % width);
+        return position * SPECIES_COUNT + species.ordinal();
+    }
+
+    /**
+     * Make the offsets of the square neighbourhood of the given
+     * radius, without its centre, as row and column pairs.
+     */
+    private static int[] makeOffsets(int radius)
+    {
+        int side = 2 * radius + 1;
+        int[] table = new int[2 * (side * side - 1)];
+        int n = 0;
+        for(int row = -radius; row <= radius; row++) {
+            for(int col = -radius; col <= radius; col++) {
+                if(row != 0 || col != 0) {
+                    table[n++] = row;
+                    table[n++] = col;
+                }
+            }
+        }
+        return table;
+    }
+}
@@ -1,5 +1,5 @@
+import java.io.IOException;
 import java.util.List;
-import java.util.Iterator;
 import java.util.Random;
 
 /**
@@ -24,14 +24,20 @@ public class Bear extends Predator
     private static final int DEER_FOOD_VALUE = 9;
     // A shared random number generator to control breeding.
     private static final Random rand = Randomizer.getRandom();
+    // The species a bear eats.
+    private static final int DIET = Species.DEER.getMask();
     // The maximum amount of food a bear can have.
     private static final int MAX_FOOD_LEVEL = 180;
-    // The bear's age.
-    private int age;
+    // The characteristics of a bear, for the struct-of-arrays simulation
+    // and for scheduling its sleep.
+    static final AnimalTraits TRAITS =
+        new AnimalTraits(BREEDING_AGE, MAX_AGE, BREEDING_PROBABILITY, MAX_LITTER_SIZE,
+                         DEER_FOOD_VALUE,
+                         DEER_FOOD_VALUE)
+            .eats(Species.DEER, DEER_FOOD_VALUE)
+            .sleepsIn(Clock.Phase.MORNING);
     // The bear's food level, which is increased by eating deer.
     private int foodLevel;
-     //The weather
-    private Weather weather = new Weather();
     /**
      * Create a bear. A bear can be created as a new born (age zero
      * and not hungry) or with a random age and food level.
@@ -44,12 +50,43 @@ public class Bear extends Predator
     public Bear(boolean randomAge, Field field, Location location, Gender gender)
     {
         super(field, location, gender);
+        init(randomAge);
+        updateMatingIndex();
+    }
+    
+    /**
+     * Create a bear, reusing a dead one from the field's pool if there is one.
+     * 
+     * @param randomAge If true, the bear will have random age and hunger level.
+     * @param field The field currently occupied.
+     * @param location The location within the field.
+     * @param gender The gender of the bear
+     * @return The bear.
+     */
+    public static Bear create(boolean randomAge, Field field, Location location, Gender gender)
+    {
+        Bear bear = (Bear) field.getPool().obtain(Species.BEAR);
+        if(bear == null) {
+            return new Bear(randomAge, field, location, gender);
+        }
+        bear.revive(field, location, gender);
+        bear.init(randomAge);
+        bear.updateMatingIndex();
+        return bear;
+    }
+    
+    /**
+     * Set the age and food level of a new bear.
+     * @param randomAge If true, the bear will have random age and hunger level.
+     */
+    private void init(boolean randomAge)
+    {
         if(randomAge) {
-            age = rand.nextInt(MAX_AGE);
+            setAge(rand.nextInt(MAX_AGE));
             foodLevel = rand.nextInt(DEER_FOOD_VALUE);
         }
         else {
-            age = 0;
+            setAge(0);
             foodLevel = DEER_FOOD_VALUE;
         }
     }
@@ -63,12 +100,8 @@ public class Bear extends Predator
      */
     protected void act(List<Organism> newBears)
     {
-        incrementAge();
         incrementHunger();
-        if(weather.dayCounter == 1 ){
-            sleep();
-        }
-        else if(isAlive()) {
+        if(isAlive()) {
             meet(newBears);
             // Move towards a source of food if found.
             Location newLocation = findFood();
@@ -88,16 +121,71 @@ public class Bear extends Predator
     }
 
     /**
-     * Increase the age. This could result in the bear's death.
+     * Write the bear's own state to a checkpoint.
+     * @param out The checkpoint being written.
      */
-    private void incrementAge()
+    protected void writeState(Checkpoint.Output out) throws IOException
     {
-        age++;
-        if(age > MAX_AGE) {
-            setDead();
+        super.writeState(out);
+        out.putInt(foodLevel);
+    }
+    
+    /**
+     * Read the bear's own state from a checkpoint.
+     * @param in The checkpoint being read.
+     */
+    protected void readState(Checkpoint.Input in) throws IOException
+    {
+        super.readState(in);
+        foodLevel = in.getInt();
+    }
+
+    /**
+     * Sleep through a step: the bear only grows hungrier,
+     * which may kill it.
+     */
+    protected void rest()
+    {
+        incrementHunger();
+    }
+    
+    /**
+     * Return the characteristics of the bear.
+     * @return The traits of the species.
+     */
+    protected AnimalTraits getTraits()
+    {
+        return TRAITS;
+    }
+
+    /**
+     * Plan what the bear does in a step of the two-phase step mode.
+     * This is what act does, but the bear only records what it means to do.
+     * @param intents The intents of the organisms for this step.
+     */
+    protected void plan(StepIntents intents)
+    {
+        foodLevel--;
+        if(foodLevel <= 0) {
+            intents.die(this);
+        }
+        else if(!sleepsIn(field.getClock().getPhase())) {
+            meet(intents);
+            forage(intents, DIET);
         }
     }
     
+    /**
+     * Create a newborn bear at the given location.
+     * @param field The field the cub is born into.
+     * @param location Where the cub is born.
+     * @return The cub.
+     */
+    protected Organism offspring(Field field, Location location)
+    {
+        return Bear.create(false, field, location, randomGender());
+    }
+
     /**
      * Make this bear more hungry. This could result in the bear's death.
      */
@@ -111,27 +199,27 @@ public class Bear extends Predator
     
     /**
      * Look for deer adjacent to the current location.
-     * Only the first live deer is eaten.
+     * The nearest live deer is eaten, picked at random if several are equally near.
      * @return Where food was found, or null if it wasn't.
      */
     protected Location findFood()
     {
         Field field = getField();
-        List<Location> adjacent = field.adjacentNLocations(getLocation(), 2);
-        Iterator<Location> it = adjacent.iterator();
-        while(it.hasNext() ) {
-            Location where = it.next();
-            Object animal = field.getObjectAt(where);
-            if(animal instanceof Deer) {
-                Deer deer = (Deer) animal;
-                if(deer.isAlive()) { 
-                    deer.setDead();
-                    foodLevel = DEER_FOOD_VALUE;
-                    return where;
-                }
-            }
+        Location where = field.nearestOccupant(getLocation(), 3, DIET);
+        if(where != null) {
+            eat((Organism) field.getObjectAt(where));
         }
-        return null;
+        return where;
+    }
+
+    /**
+     * Eat the given deer, which dies.
+     * @param food The deer being eaten.
+     */
+    protected void eat(Organism food)
+    {
+        foodLevel = DEER_FOOD_VALUE;
+        food.setDead();
     }
     
     /**
@@ -142,14 +230,14 @@ public class Bear extends Predator
     protected void giveBirth(List<Organism> newBears)
     {
         // New bears are born into adjacent locations.
-        // Get a list of adjacent free locations.
+        // Walk the adjacent free locations.
         Field field = getField();
-        List<Location> free = field.getFreeAdjacentLocations(getLocation());
         int births = breed();
-        for(int b = 0; b < births && free.size() > 0; b++) {
-            Location loc = free.remove(0);
-            Bear cub = new Bear(false, field, loc, randomGender());
-            newBears.add(cub);
+        try(Field.Neighbourhood free = field.neighbours(getLocation(), 1)) {
+            for(int b = 0; b < births && free.nextFree(); b++) {
+                Bear cub = Bear.create(false, field, free.getLocation(), randomGender());
+                newBears.add(cub);
+            }
         }
     } 
     
@@ -162,14 +250,14 @@ public class Bear extends Predator
     protected void giveBirth(List<Organism> newBears, int steps)
     {
         // New bears are born into adjacent locations.
-        // Get a list of further apart free locations.
+        // Walk the further apart free locations.
         Field field = getField();
-        List<Location> free = field.getFreeNAdjacentLocations(getLocation(), steps);
         int births = breed();
-        for(int b = 0; b < births && free.size() > 0; b++) {
-            Location loc = free.remove(0);
-            Bear cub = new Bear(false, field, loc, randomGender());
-            newBears.add(cub);
+        try(Field.Neighbourhood free = field.neighbours(getLocation(), steps + 1)) {
+            for(int b = 0; b < births && free.nextFree(); b++) {
+                Bear cub = Bear.create(false, field, free.getLocation(), randomGender());
+                newBears.add(cub);
+            }
         }
     } 
     
@@ -178,7 +266,7 @@ public class Bear extends Predator
      * if it can breed.
      * @return The number of births (may be zero).
      */
-    private int breed()
+    protected int breed()
     {
         int births = 0;
         if(rand.nextDouble() <= BREEDING_PROBABILITY) {
@@ -193,6 +281,6 @@ public class Bear extends Predator
      */
     protected boolean canBreed()
     {
-        return age >= BREEDING_AGE;
+        return getAge() >= BREEDING_AGE;
     }
 }
\ No newline at end of file
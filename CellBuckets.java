@@ -0,0 +1,146 @@
+import java.util.Arrays;
+
+/**
+ * Marked cells of a field, filed under a key and sorted into coarse square
+ * buckets, so that the marks of a key in the square around a cell can be
+ * counted without a grid the size of the field. Buckets wholly inside the
+ * square are counted whole; only the marks of the buckets on its edges are
+ * looked at one by one.
+ *
+ * The marks are rebuilt each time they are wanted: clear, add each mark,
+ * then build, which sorts them by key and bucket with a counting sort.
+ * Building costs time in proportion to the marks and the buckets, and the
+ * index holds two ints a mark and one for each key of each bucket.
+ *
+ * @author Anirudh George and Ahmet Bayazitoglu
+ * @version 2022.03.02
+ */
+public class CellBuckets
+{
+    // The side of each bucket, in cells.
+    private static final int BUCKET_SIZE = 16;
+
+    // The number of rows and columns of buckets, and of buckets in all.
+    private int bucketRows, bucketCols, bucketCount;
+    // The number of marks added since the index was cleared.
+    private int marks;
+    // The key and bucket of each mark as added, then its row and column.
+    private int[] slots = new int[64];
+    private int[] addedRows = new int[64];
+    private int[] addedCols = new int[64];
+    // The rows and columns of the marks, sorted by key and bucket.
+    private int[] rows = new int[64];
+    private int[] cols = new int[64];
+    // Where the marks of each key and bucket start in rows and cols,
+    // with one more entry for the end of the last.
+    private int[] starts;
+
+    /**
+     * Create an empty index for a field of the given size.
+     * @param depth The depth of the field.
+     * @param width The width of the field.
+     * @param keys How many keys the marks are filed under.
+     */
+    public CellBuckets(int depth, int width, int keys)
+    {
+        bucketRows = (depth + BUCKET_SIZE - 1) / BUCKET_SIZE;
+        bucketCols = (width + BUCKET_SIZE - 1) / BUCKET_SIZE;
+        bucketCount = bucketRows * bucketCols;
+        starts = new int[keys * bucketCount + 1];
+    }
+
+    /**
+     * Remove every mark.
+     */
+    public void clear()
+    {
+        marks = 0;
+    }
+
+    /**
+     * Mark a cell under a key. The mark is not counted until the next build.
+     * @param key The key, from 0 up to the number of keys.
+     * @param row The row of the cell.
+     * @param col The column of the cell.
+     */
+    public void add(int key, int row, int col)
+    {
+        if(marks == slots.length) {
+            slots = Arrays.copyOf(slots, marks * 2);
+            addedRows = Arrays.copyOf(addedRows, marks * 2);
+            addedCols = Arrays.copyOf(addedCols, marks * 2);
+        }
+        slots[marks] = key * bucketCount + (row / BUCKET_SIZE) * bucketCols + col / BUCKET_SIZE;
+        addedRows[marks] = row;
+        addedCols[marks] = col;
+        marks++;
+    }
+
+    /**
+     * Sort the marks added by key and bucket, so they can be counted.
+     */
+    public void build()
+    {
+        if(rows.length < marks) {
+            rows = new int[slots.length];
+            cols = new int[slots.length];
+        }
+        Arrays.fill(starts, 0);
+        for(int i = 0; i < marks; i++) {
+            starts[slots[i] + 1]++;
+        }
+        for(int slot = 1; slot < starts.length; slot++) {
+            starts[slot] += starts[slot - 1];
+        }
+        // Place each mark, moving the start of its slot on as it goes;
+        // each start is left at the start of the slot after.
+        for(int i = 0; i < marks; i++) {
+            int at = starts[slots[i]]++;
+            rows[at] = addedRows[i];
+            cols[at] = addedCols[i];
+        }
+        System.arraycopy(starts, 0, starts, 1, starts.length - 1);
+        starts[0] = 0;
+    }
+
+    /**
+     * Count the marks of a key in the square of the given radius around a
+     * cell, clipped to the field.
+     * @param key The key of the marks.
+     * @param row The row of the cell.
+     * @param col The column of the cell.
+     * @param radius How many rows and columns the square reaches from the cell.
+     * @return The number of marks in the square.
+     */
+    public int count(int key, int row, int col, int radius)
+    {
+        int top = Math.max(row - radius, 0);
+        int left = Math.max(col - radius, 0);
+        int bottom = row + radius;
+        int right = col + radius;
+        int lastBucketRow = Math.min(bottom / BUCKET_SIZE, bucketRows - 1);
+        int lastBucketCol = Math.min(right / BUCKET_SIZE, bucketCols - 1);
+        int base = key * bucketCount;
+        int count = 0;
+        for(int bucketRow = top / BUCKET_SIZE; bucketRow <= lastBucketRow; bucketRow++) {
+            boolean rowsInside = bucketRow * BUCKET_SIZE >= top &&
+                                 (bucketRow + 1) * BUCKET_SIZE - 1 <= bottom;
+            for(int bucketCol = left / BUCKET_SIZE; bucketCol <= lastBucketCol; bucketCol++) {
+                int slot = base + bucketRow * bucketCols + bucketCol;
+                int start = starts[slot];
+                int end = starts[slot + 1];
+                if(rowsInside && bucketCol * BUCKET_SIZE >= left &&
+                   (bucketCol + 1) * BUCKET_SIZE - 1 <= right) {
+                    count += end - start;
+                    continue;
+                }
+                for(int i = start; i < end; i++) {
+                    if(rows[i] >= top && rows[i] <= bottom && cols[i] >= left && cols[i] <= right) {
+                        count++;
+                    }
+                }
+            }
+        }
+        return count;
+    }
+}
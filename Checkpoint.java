@@ -0,0 +1,419 @@
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A binary checkpoint of the whole state of a simulation, from which it
+ * can be restored to carry on exactly as it would have.
+ *
+ * A checkpoint is written and read through a small buffer on a file
+ * channel, so the image of a large simulation is never built in memory.
+ * Each part of the simulation writes and reads its own state: the
+ * simulation's settings, the organisms, the field with everything it
+ * keeps, and last the random numbers. Organisms are written once, in the
+ * order of the simulation's list, and are referred to after that by their
+ * index in it.
+ *
+ * A checkpoint is written to a temporary file beside the one named, which
+ * only replaces it once complete, so a crash while saving leaves the last
+ * checkpoint as it was.
+ *
+ * @author Anirudh George and Ahmet Bayazitoglu
+ * @version 2022.03.02
+ */
+public class Checkpoint
+{
+    // The first int of a checkpoint file, and the version of its layout.
+    private static final int MAGIC = 0x53494D43;
+    private static final int VERSION = 1;
+    // The size of the buffer between the simulation and the file.
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Writes a checkpoint to a file.
+     */
+    public static class Output implements AutoCloseable
+    {
+        // The file named, and the temporary file written until it is complete.
+        private Path path, temporary;
+        private FileChannel channel;
+        private ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        // The index of each organism written, by identity.
+        private Map<Organism, Integer> indexes = new IdentityHashMap<>();
+        // Whether the checkpoint is complete.
+        private boolean finished;
+
+        /**
+         * Start a checkpoint to be written to the given file.
+         * @param path The file, which is replaced once the checkpoint is finished.
+         * @throws IOException If the file cannot be written.
+         */
+        public Output(Path path) throws IOException
+        {
+            this.path = path;
+            temporary = path.resolveSibling(path.getFileName() + ".tmp");
+            channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                       StandardOpenOption.TRUNCATE_EXISTING);
+            putInt(MAGIC);
+            putInt(VERSION);
+        }
+
+        /**
+         * Write a byte.
+         * @param value The byte, in the low eight bits.
+         */
+        public void putByte(int value) throws IOException
+        {
+            ensure(1);
+            buffer.put((byte) value);
+        }
+
+        /**
+         * Write a boolean, as a byte.
+         * @param value The boolean.
+         */
+        public void putBoolean(boolean value) throws IOException
+        {
+            putByte(value ? 1 : 0);
+        }
+
+        /**
+         * Write an int.
+         * @param value The int.
+         */
+        public void putInt(int value) throws IOException
+        {
+            ensure(4);
+            buffer.putInt(value);
+        }
+
+        /**
+         * Write a long.
+         * @param value The long.
+         */
+        public void putLong(long value) throws IOException
+        {
+            ensure(8);
+            buffer.putLong(value);
+        }
+
+        /**
+         * Write a float, exactly.
+         * @param value The float.
+         */
+        public void putFloat(float value) throws IOException
+        {
+            ensure(4);
+            buffer.putFloat(value);
+        }
+
+        /**
+         * Write a double, exactly.
+         * @param value The double.
+         */
+        public void putDouble(double value) throws IOException
+        {
+            ensure(8);
+            buffer.putDouble(value);
+        }
+
+        /**
+         * Write all of an array of bytes, a buffer at a time.
+         * @param bytes The bytes.
+         */
+        public void putBytes(byte[] bytes) throws IOException
+        {
+            int offset = 0;
+            while(offset < bytes.length) {
+                ensure(1);
+                int length = Math.min(buffer.remaining(), bytes.length - offset);
+                buffer.put(bytes, offset, length);
+                offset += length;
+            }
+        }
+
+        /**
+         * Write the live organisms of a simulation, numbering them in order
+         * so that they can be referred to by putOrganism afterwards.
+         * Each is written as its species and location, then its own state.
+         * @param organisms The organisms of the simulation.
+         */
+        public void putOrganisms(List<Organism> organisms) throws IOException
+        {
+            int alive = 0;
+            for(Organism organism : organisms) {
+                if(organism.isAlive()) {
+                    alive++;
+                }
+            }
+            putInt(alive);
+            for(Organism organism : organisms) {
+                if(!organism.isAlive()) {
+                    continue;
+                }
+                indexes.put(organism, indexes.size());
+                Location location = organism.getLocation();
+                putByte(organism.getSpecies().getTag());
+                putInt(location.getRow());
+                putInt(location.getCol());
+                if(organism instanceof Animal) {
+                    putByte(((Animal) organism).getGender().ordinal());
+                }
+                organism.writeState(this);
+            }
+        }
+
+        /**
+         * Write a reference to an organism already written by putOrganisms.
+         * @param organism The organism, or null.
+         */
+        public void putOrganism(Organism organism) throws IOException
+        {
+            if(organism == null) {
+                putInt(-1);
+                return;
+            }
+            Integer index = indexes.get(organism);
+            if(index == null) {
+                throw new IllegalStateException("The organism is not in the simulation: " + organism);
+            }
+            putInt(index);
+        }
+
+        /**
+         * Complete the checkpoint, replacing any earlier one in the file.
+         */
+        public void finish() throws IOException
+        {
+            flush();
+            channel.force(false);
+            channel.close();
+            try {
+                Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING,
+                           StandardCopyOption.ATOMIC_MOVE);
+            }
+            catch(AtomicMoveNotSupportedException e) {
+                Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+            finished = true;
+        }
+
+        /**
+         * Abandon the checkpoint if it has not been finished.
+         */
+        public void close() throws IOException
+        {
+            if(!finished) {
+                channel.close();
+                Files.deleteIfExists(temporary);
+            }
+        }
+
+        /**
+         * Make room for the given number of bytes in the buffer.
+         */
+        private void ensure(int bytes) throws IOException
+        {
+            if(buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+
+        /**
+         * Write out what is in the buffer.
+         */
+        private void flush() throws IOException
+        {
+            buffer.flip();
+            while(buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+
+    /**
+     * Reads a checkpoint from a file.
+     */
+    public static class Input implements AutoCloseable
+    {
+        private FileChannel channel;
+        private ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        // The organisms read, in the order they were written.
+        private List<Organism> organisms = new ArrayList<>();
+
+        /**
+         * Open a checkpoint to be read from the given file.
+         * @param path The file.
+         * @throws IOException If the file cannot be read, or is not a checkpoint.
+         */
+        public Input(Path path) throws IOException
+        {
+            channel = FileChannel.open(path, StandardOpenOption.READ);
+            buffer.limit(0);
+            if(getInt() != MAGIC || getInt() != VERSION) {
+                channel.close();
+                throw new IOException("Not a checkpoint of this version: " + path);
+            }
+        }
+
+        /**
+         * @return The next byte.
+         */
+        public byte getByte() throws IOException
+        {
+            ensure(1);
+            return buffer.get();
+        }
+
+        /**
+         * @return The next boolean.
+         */
+        public boolean getBoolean() throws IOException
+        {
+            return getByte() != 0;
+        }
+
+        /**
+         * @return The next int.
+         */
+        public int getInt() throws IOException
+        {
+            ensure(4);
+            return buffer.getInt();
+        }
+
+        /**
+         * @return The next long.
+         */
+        public long getLong() throws IOException
+        {
+            ensure(8);
+            return buffer.getLong();
+        }
+
+        /**
+         * @return The next float.
+         */
+        public float getFloat() throws IOException
+        {
+            ensure(4);
+            return buffer.getFloat();
+        }
+
+        /**
+         * @return The next double.
+         */
+        public double getDouble() throws IOException
+        {
+            ensure(8);
+            return buffer.getDouble();
+        }
+
+        /**
+         * Fill an array of bytes, a buffer at a time.
+         * @param bytes The array to fill.
+         */
+        public void getBytes(byte[] bytes) throws IOException
+        {
+            int offset = 0;
+            while(offset < bytes.length) {
+                ensure(1);
+                int length = Math.min(buffer.remaining(), bytes.length - offset);
+                buffer.get(bytes, offset, length);
+                offset += length;
+            }
+        }
+
+        /**
+         * Read the organisms written by putOrganisms, creating each one at
+         * its location in the given field and then setting its own state.
+         * The field must be cleared and read afterwards, as the organisms
+         * are placed, filed and scheduled as if they were newborns.
+         * @param field The field of the simulation being restored.
+         * @return The organisms, in the order they were written.
+         */
+        public List<Organism> getOrganisms(Field field) throws IOException
+        {
+            Animal.Gender[] genders = Animal.Gender.values();
+            int count = getInt();
+            for(int i = 0; i < count; i++) {
+                Species kind = Species.fromTag(getByte());
+                Location location = field.getLocation(getInt(), getInt());
+                Animal.Gender gender = kind == Species.PLANT ? null : genders[getByte()];
+                Organism organism = create(kind, field, location, gender);
+                organism.readState(this);
+                organisms.add(organism);
+            }
+            return organisms;
+        }
+
+        /**
+         * Read a reference to an organism written by putOrganism.
+         * @return The organism, or null.
+         */
+        public Organism getOrganism() throws IOException
+        {
+            int index = getInt();
+            return index < 0 ? null : organisms.get(index);
+        }
+
+        /**
+         * Close the file.
+         */
+        public void close() throws IOException
+        {
+            channel.close();
+        }
+
+        /**
+         * Create an organism of the given species as a newborn.
+         */
+        private static Organism create(Species species, Field field, Location location, Animal.Gender gender)
+            throws IOException
+        {
+            switch(species) {
+                case PLANT:
+                    return Plant.create(field, location);
+                case TORTOISE:
+                    return Tortoise.create(false, field, location, gender);
+                case DEER:
+                    return Deer.create(false, field, location, gender);
+                case JAGUAR:
+                    return Jaguar.create(false, field, location, gender);
+                case BEAR:
+                    return Bear.create(false, field, location, gender);
+                case TIGER:
+                    return Tiger.create(false, field, location, gender);
+                default:
+                    throw new IOException("No organism of species " + species);
+            }
+        }
+
+        /**
+         * Make sure the buffer holds at least the given number of bytes.
+         */
+        private void ensure(int bytes) throws IOException
+        {
+            if(buffer.remaining() < bytes) {
+                buffer.compact();
+                while(buffer.position() < bytes) {
+                    if(channel.read(buffer) < 0) {
+                        throw new EOFException("The checkpoint is incomplete.");
+                    }
+                }
+                buffer.flip();
+            }
+        }
+    }
+}
@@ -0,0 +1,50 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+
+/**
+ * Saves a checkpoint of a simulation every so many steps, so that a long
+ * run can be resumed from the last checkpoint if it is stopped.
+ *
+ * @author Anirudh George and Ahmet Bayazitoglu
+ * @version 2022.03.02
+ */
+public class CheckpointSaver implements SimulationObserver
+{
+    // The simulation to save, and the file to save it to.
+    private Simulator simulator;
+    private Path path;
+    // How many steps apart the checkpoints are saved.
+    private int interval;
+
+    /**
+     * Create a saver of checkpoints of the given simulation.
+     * @param simulator The simulation.
+     * @param path The file to save to. Each checkpoint replaces the last.
+     * @param interval How many steps apart to save. Must be greater than zero.
+     */
+    public CheckpointSaver(Simulator simulator, Path path, int interval)
+    {
+        this.simulator = simulator;
+        this.path = path;
+        this.interval = interval;
+    }
+
+    /**
+     * Save a checkpoint if the step is one to be saved. The starting state
+     * is not saved.
+     * @param step The number of the step, or zero after a reset.
+     * @param field The field of the simulation.
+     */
+    public void stepped(int step, Field field)
+    {
+        if(step > 0 && step % interval == 0) {
+            try {
+                simulator.saveCheckpoint(path);
+            }
+            catch(IOException e) {
+                throw new UncheckedIOException("Cannot save a checkpoint to " + path, e);
+            }
+        }
+    }
+}
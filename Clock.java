@@ -0,0 +1,65 @@
+/**
+ * The time of day in a simulation, shared by everything in its field.
+ * Each step is one phase of the day: morning, mid-day and night follow
+ * each other in turn, starting with morning on the first step.
+ *
+ * Animals sleep through one phase of the day, when they only grow older
+ * and hungrier, so the simulators look up the phase once for each step
+ * and leave the sleeping animals out of the rest of the step.
+ *
+ * @author Anirudh George and Ahmet Bayazitoglu
+ * @version 2022.03.02
+ */
+public class Clock
+{
+    /**
+     * The phases of the day.
+     */
+    public enum Phase
+    {
+        MORNING,
+        MIDDAY,
+        NIGHT
+    }
+
+    // The phases, in the order they follow each other.
+    private static final Phase[] PHASES = Phase.values();
+
+    // The current step, and its phase of the day.
+    private int step;
+    private Phase phase;
+
+    /**
+     * Create a clock at step zero, the night before the first step.
+     */
+    public Clock()
+    {
+        setStep(0);
+    }
+
+    /**
+     * Set the clock to the given step.
+     * @param step The number of the step.
+     */
+    public void setStep(int step)
+    {
+        this.step = step;
+        phase = PHASES[Math.floorMod(step - 1, PHASES.length)];
+    }
+
+    /**
+     * @return The current step.
+     */
+    public int getStep()
+    {
+        return step;
+    }
+
+    /**
+     * @return The current phase of the day.
+     */
+    public Phase getPhase()
+    {
+        return phase;
+    }
+}
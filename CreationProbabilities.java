@@ -0,0 +1,62 @@
+/**
+ * The probabilities with which each species is created in any given grid
+ * position when a simulation is populated. A new set holds the defaults,
+ * which any run may change.
+ *
+ * @author Anirudh George and Ahmet Bayazitoglu
+ * @version 2022.03.02
+ */
+public class CreationProbabilities
+{
+    // The probability that a jaguar will be created in any given grid position.
+    private static final double JAGUAR_CREATION_PROBABILITY = 0.02;
+    // The probability that a tortoise will be created in any given grid position.
+    private static final double TORTOISE_CREATION_PROBABILITY = 0.12;  
+    // The probability that a bear will be created in any given grid position.
+    private static final double BEAR_CREATION_PROBABILITY = 0.01;
+    // The probability that a deer will be created in any given grid position.
+    private static final double DEER_CREATION_PROBABILITY = 0.12;
+    // The probability that a tiger will be created in any given grid position.
+    private static final double TIGER_CREATION_PROBABILITY = 0.01;
+    // The probability that a plant seed will be created in any given grid position.
+    private static final double SEED_GERMINATION_RATE = 0.10;
+
+    // The probability for each species, indexed by species.
+    private double[] probabilities = new double[Species.values().length];
+
+    /**
+     * Create a set of the default probabilities.
+     */
+    public CreationProbabilities()
+    {
+        set(Species.JAGUAR, JAGUAR_CREATION_PROBABILITY);
+        set(Species.TORTOISE, TORTOISE_CREATION_PROBABILITY);
+        set(Species.BEAR, BEAR_CREATION_PROBABILITY);
+        set(Species.DEER, DEER_CREATION_PROBABILITY);
+        set(Species.TIGER, TIGER_CREATION_PROBABILITY);
+        set(Species.PLANT, SEED_GERMINATION_RATE);
+    }
+
+    /**
+     * Return the probability that the given species is created in a position.
+     * @param species The species.
+     * @return The probability.
+     */
+    public double get(Species species)
+    {
+        return probabilities[species.ordinal()];
+    }
+
+    /**
+     * Set the probability that the given species is created in a position.
+     * @param species The species.
+     * @param probability The probability, between zero and one.
+     */
+    public void set(Species species, double probability)
+    {
+        if(probability < 0 || probability > 1) {
+            throw new IllegalArgumentException("Probability out of range: " + probability);
+        }
+        probabilities[species.ordinal()] = probability;
+    }
+}
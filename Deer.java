@@ -1,6 +1,6 @@
+import java.io.IOException;
 import java.util.List;
 import java.util.Random;
-import java.util.Iterator;
 
 /**
  * A simple model of a deer.
@@ -21,18 +21,24 @@ public class Deer extends Prey
     private static final int MAX_LITTER_SIZE = 8;
     // A shared random number generator to control breeding.
     private static final Random rand = Randomizer.getRandom();
+    // The species a deer eats.
+    private static final int DIET = Species.PLANT.getMask();
     // The food value of a single plant. In effect, this is the
     // number of steps a deer can go before it has to eat again.
     private static final int PLANT_FOOD_VALUE = 16;
     //The maximum amount of food a deer can have
     private static final int MAX_FOOD_LEVEL = 160;
+    // The characteristics of a deer, for the struct-of-arrays simulation
+    // and for scheduling its sleep.
+    static final AnimalTraits TRAITS =
+        new AnimalTraits(BREEDING_AGE, MAX_AGE, BREEDING_PROBABILITY, MAX_LITTER_SIZE,
+                         PLANT_FOOD_VALUE,
+                         PLANT_FOOD_VALUE)
+            .eats(Species.PLANT, PLANT_FOOD_VALUE)
+            .sleepsIn(Clock.Phase.NIGHT);
     
-    // The deer's age.
-    private int age;
     //The deer's food level, which is increased by eating plants.
     private int foodLevel;
-     //The weather
-    private Weather weather = new Weather();
     /**
      * Create a new deer. A deer may be created with age
      * zero (a new born) or with a random age.
@@ -45,13 +51,43 @@ public class Deer extends Prey
     public Deer(boolean randomAge, Field field, Location location, Gender gender)
     {
         super(field, location, gender);
-        age = 0;
+        init(randomAge);
+        updateMatingIndex();
+    }
+    
+    /**
+     * Create a deer, reusing a dead one from the field's pool if there is one.
+     * 
+     * @param randomAge If true, the deer will have a random age.
+     * @param field The field currently occupied.
+     * @param location The location within the field.
+     * @param gender The gender of the deer
+     * @return The deer.
+     */
+    public static Deer create(boolean randomAge, Field field, Location location, Gender gender)
+    {
+        Deer deer = (Deer) field.getPool().obtain(Species.DEER);
+        if(deer == null) {
+            return new Deer(randomAge, field, location, gender);
+        }
+        deer.revive(field, location, gender);
+        deer.init(randomAge);
+        deer.updateMatingIndex();
+        return deer;
+    }
+    
+    /**
+     * Set the age and food level of a new deer.
+     * @param randomAge If true, the deer will have a random age.
+     */
+    private void init(boolean randomAge)
+    {
         if(randomAge) {
-            age = rand.nextInt(MAX_AGE);
+            setAge(rand.nextInt(MAX_AGE));
             foodLevel = rand.nextInt(PLANT_FOOD_VALUE);
         }
         else {
-            age = 0;
+            setAge(0);
             foodLevel = PLANT_FOOD_VALUE;
         }
     }
@@ -63,12 +99,8 @@ public class Deer extends Prey
      */
     protected void act(List<Organism> newDeer)
     {
-        incrementAge();
         incrementHunger();
-        if(weather.dayCounter==3 ){
-            sleep();
-        }
-        else if(isAlive()) {
+        if(isAlive()) {
             meet(newDeer);
             // Try to move into a free location.
             Location newLocation = findFood();
@@ -87,17 +119,71 @@ public class Deer extends Prey
     }
 
     /**
-     * Increase the age.
-     * This could result in the deer's death.
+     * Write the deer's own state to a checkpoint.
+     * @param out The checkpoint being written.
      */
-    private void incrementAge()
+    protected void writeState(Checkpoint.Output out) throws IOException
     {
-        age++;
-        if(age > MAX_AGE) {
-            setDead();
+        super.writeState(out);
+        out.putInt(foodLevel);
+    }
+    
+    /**
+     * Read the deer's own state from a checkpoint.
+     * @param in The checkpoint being read.
+     */
+    protected void readState(Checkpoint.Input in) throws IOException
+    {
+        super.readState(in);
+        foodLevel = in.getInt();
+    }
+
+    /**
+     * Sleep through a step: the deer only grows hungrier,
+     * which may kill it.
+     */
+    protected void rest()
+    {
+        incrementHunger();
+    }
+    
+    /**
+     * Return the characteristics of the deer.
+     * @return The traits of the species.
+     */
+    protected AnimalTraits getTraits()
+    {
+        return TRAITS;
+    }
+
+    /**
+     * Plan what the deer does in a step of the two-phase step mode.
+     * This is what act does, but the deer only records what it means to do.
+     * @param intents The intents of the organisms for this step.
+     */
+    protected void plan(StepIntents intents)
+    {
+        foodLevel--;
+        if(foodLevel <= 0) {
+            intents.die(this);
+        }
+        else if(!sleepsIn(field.getClock().getPhase())) {
+            meet(intents);
+            forage(intents, DIET);
         }
     }
     
+    /**
+     * Create a newborn deer at the given location.
+     * @param field The field the fawn is born into.
+     * @param location Where the fawn is born.
+     * @return The fawn.
+     */
+    protected Organism offspring(Field field, Location location)
+    {
+        return Deer.create(false, field, location, randomGender());
+    }
+
     /**
      * Check whether or not this deer is to give birth at this step.
      * New births will be made into free adjacent locations.
@@ -106,14 +192,14 @@ public class Deer extends Prey
     protected void giveBirth(List<Organism> newDeer)
     {
         // New deer are born into adjacent locations.
-        // Get a list of adjacent free locations.
+        // Walk the adjacent free locations.
         Field field = getField();
-        List<Location> free = field.getFreeAdjacentLocations(getLocation());
         int births = breed();
-        for(int b = 0; b < births && free.size() > 0; b++) {
-            Location loc = free.remove(0);
-            Deer fawn = new Deer(false, field, loc, randomGender());
-            newDeer.add(fawn);
+        try(Field.Neighbourhood free = field.neighbours(getLocation(), 1)) {
+            for(int b = 0; b < births && free.nextFree(); b++) {
+                Deer fawn = Deer.create(false, field, free.getLocation(), randomGender());
+                newDeer.add(fawn);
+            }
         }
     }
     
@@ -126,14 +212,14 @@ public class Deer extends Prey
     protected void giveBirth(List<Organism> newDeer, int steps)
     {
         // New deer are born into adjacent locations.
-        // Get a list of further apart free locations.
+        // Walk the further apart free locations.
         Field field = getField();
-        List<Location> free = field.getFreeNAdjacentLocations(getLocation(), steps);
         int births = breed();
-        for(int b = 0; b < births && free.size() > 0; b++) {
-            Location loc = free.remove(0);
-            Deer fawn = new Deer(false, field, loc, randomGender());
-            newDeer.add(fawn);
+        try(Field.Neighbourhood free = field.neighbours(getLocation(), steps + 1)) {
+            for(int b = 0; b < births && free.nextFree(); b++) {
+                Deer fawn = Deer.create(false, field, free.getLocation(), randomGender());
+                newDeer.add(fawn);
+            }
         }
     }
     
@@ -142,7 +228,7 @@ public class Deer extends Prey
      * if it can breed.
      * @return The number of births (may be zero).
      */
-    private int breed()
+    protected int breed()
     {
         int births = 0;
         if(rand.nextDouble() <= BREEDING_PROBABILITY) {
@@ -158,32 +244,34 @@ public class Deer extends Prey
      */
     protected boolean canBreed()
     {
-        return age >= BREEDING_AGE;
+        return getAge() >= BREEDING_AGE;
     }
     
     /**
      * Look for plants adjacent to or a distance from the current location.
-     * Only the first live plant is eaten.
+     * The nearest live plant is eaten, picked at random if several are equally near.
      * @return Where food was found, or null if it wasn't.
      */
     private Location findFood()
     {
         Field field = getField();
-        List<Location> adjacent = field.adjacentNLocations(getLocation(), 2);
-        Iterator<Location> it = adjacent.iterator();
-        while(it.hasNext() ) {
-            Location where = it.next();
-            Object organism = field.getObjectAt(where);
-            if(organism instanceof Plant) {
-                Plant plant = (Plant) organism;
-                if(plant.isAlive()) { 
-                    plant.setDead();
-                    foodLevel = PLANT_FOOD_VALUE;
-                    return where;
-                }
-            }
+        Location where = field.nearestOccupant(getLocation(), 3, DIET);
+        if(where != null) {
+            eatAt(where);
+        }
+        return where;
+    }
+
+    /**
+     * Eat the given plant, which dies.
+     * @param food The plant being eaten, or null for a plant of the plant layer.
+     */
+    protected void eat(Organism food)
+    {
+        foodLevel = PLANT_FOOD_VALUE;
+        if(food != null) {
+            food.setDead();
         }
-        return null;
     }
     
     /**
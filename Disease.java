@@ -0,0 +1,300 @@
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * The spread of disease through the animals in a field.
+ * 
+ * A grid marks the locations of infected animals, a field tile at a time,
+ * with nothing kept for empty tiles. Once a step, the disease spreads: the
+ * infected animals around each healthy animal are counted with a box filter
+ * over that grid, and the healthy animal is infected with a probability
+ * that grows with the count.
+ * The counts of infected animals and of new infections are kept, so that
+ * the prevalence and incidence of the disease can be reported each step.
+ *
+ * @author Anirudh George and Ahmet Bayazitoglu
+ * @version 2022.03.02
+ */
+public class Disease
+{
+    // The chance an animal gets infected with no infected animals nearby.
+    private static final double INFECTION_PROBABILITY = 0.00005;
+    // The chance that each infected animal nearby passes on the disease.
+    private static final double TRANSMISSION_PROBABILITY = 0.3;
+    // How many rows and columns away an infected animal can pass on the disease.
+    static final int RADIUS = 11;
+    // A shared random number generator to control infection.
+    private static final Random rand = Randomizer.getRandom();
+    // The size of the field's tiles, and of the box filtered around each one.
+    private static final int TILE_SIZE = Field.TILE_SIZE;
+    private static final int SPAN = TILE_SIZE + 2 * RADIUS;
+
+    // The field whose animals are infected.
+    private Field field;
+    // The depth and width of the field, and its number of rows and columns of tiles.
+    private int depth, width, tileRows, tileCols;
+    // Whether there is an infected animal at each location. There is one
+    // array for each of the field's tiles, in row-major order, or null if
+    // no infected animal has been in the tile since it was last empty.
+    private byte[][] infected;
+    // A summed-area table of the infected grid around one tile,
+    // with an extra row and column of zeros.
+    private int[] sums;
+    // The rows and columns of animals to infect at the end of a spread,
+    // and how many of those entries are in use.
+    private int[] pending = new int[64];
+    private int pendingCount;
+    // The chance of infection, indexed by the number of infected animals nearby.
+    private double[] infectionChance;
+    // The number of animals, infected animals and new infections at the last spread.
+    private int animals, infectedAnimals, newInfections;
+
+    /**
+     * Create the disease for the given field, with no animals infected.
+     * @param field The field.
+     */
+    public Disease(Field field)
+    {
+        this.field = field;
+        depth = field.getDepth();
+        width = field.getWidth();
+        tileRows = field.getTileRows();
+        tileCols = field.getTileCols();
+        infected = new byte[tileRows * tileCols][];
+        sums = new int[(SPAN + 1) * (SPAN + 1)];
+        int side = 2 * RADIUS + 1;
+        infectionChance = new double[side * side];
+        for(int count = 0; count < infectionChance.length; count++) {
+            infectionChance[count] = infectionChance(count);
+        }
+    }
+
+    /**
+     * Return the chance of a healthy animal being infected in a step.
+     * @param nearby The number of infected animals nearby.
+     * @return The chance of infection.
+     */
+    public static double infectionChance(int nearby)
+    {
+        return 1 - (1 - INFECTION_PROBABILITY) * Math.pow(1 - TRANSMISSION_PROBABILITY, nearby);
+    }
+
+    /**
+     * Forget all infections.
+     */
+    public void clear()
+    {
+        Arrays.fill(infected, null);
+        animals = 0;
+        infectedAnimals = 0;
+        newInfections = 0;
+    }
+
+    /**
+     * Write the marks of the infected animals, and the counts of the
+     * last spread, to a checkpoint.
+     * @param out The checkpoint being written.
+     */
+    void write(Checkpoint.Output out) throws IOException
+    {
+        out.putInt(animals);
+        out.putInt(infectedAnimals);
+        out.putInt(newInfections);
+        for(byte[] marks : infected) {
+            out.putBoolean(marks != null);
+            if(marks != null) {
+                out.putBytes(marks);
+            }
+        }
+    }
+
+    /**
+     * Read the marks of the infected animals, and the counts of the
+     * last spread, from a checkpoint.
+     * @param in The checkpoint being read.
+     */
+    void read(Checkpoint.Input in) throws IOException
+    {
+        animals = in.getInt();
+        infectedAnimals = in.getInt();
+        newInfections = in.getInt();
+        for(int tile = 0; tile < infected.length; tile++) {
+            infected[tile] = null;
+            if(in.getBoolean()) {
+                infected[tile] = new byte[TILE_SIZE * TILE_SIZE];
+                in.getBytes(infected[tile]);
+            }
+        }
+    }
+
+    /**
+     * Record whether there is an infected animal at the given location.
+     * @param location The location.
+     * @param isInfected Whether the animal there is infected.
+     */
+    public void mark(Location location, boolean isInfected)
+    {
+        int row = location.getRow();
+        int col = location.getCol();
+        int tile = (row / TILE_SIZE) * tileCols + col / TILE_SIZE;
+        if(infected[tile] == null) {
+            if(!isInfected) {
+                return;
+            }
+            infected[tile] = new byte[TILE_SIZE * TILE_SIZE];
+        }
+        infected[tile][(row % TILE_SIZE) * TILE_SIZE + col % TILE_SIZE] = (byte) (isInfected ? 1 : 0);
+    }
+
+    /**
+     * Spread the disease for one step. The chance of each healthy animal
+     * being infected depends on the number of infected animals that were
+     * nearby at the start of the step. Empty tiles are skipped.
+     */
+    public void spread()
+    {
+        // Count the animals, dropping any marks for
+        // locations no longer holding an animal.
+        animals = 0;
+        infectedAnimals = 0;
+        for(int tileRow = 0; tileRow < tileRows; tileRow++) {
+            for(int tileCol = 0; tileCol < tileCols; tileCol++) {
+                int tile = tileRow * tileCols + tileCol;
+                if(field.isTileEmpty(tileRow, tileCol)) {
+                    infected[tile] = null;
+                    continue;
+                }
+                byte[] marks = infected[tile];
+                int lastRow = Math.min((tileRow + 1) * TILE_SIZE, depth);
+                int lastCol = Math.min((tileCol + 1) * TILE_SIZE, width);
+                for(int row = tileRow * TILE_SIZE; row < lastRow; row++) {
+                    for(int col = tileCol * TILE_SIZE; col < lastCol; col++) {
+                        int index = (row % TILE_SIZE) * TILE_SIZE + col % TILE_SIZE;
+                        if(isAnimal(field.getSpeciesAt(row, col))) {
+                            animals++;
+                            if(marks != null) {
+                                infectedAnimals += marks[index];
+                            }
+                        }
+                        else if(marks != null) {
+                            marks[index] = 0;
+                        }
+                    }
+                }
+            }
+        }
+
+        // Decide on the new infections, then make them, so that every
+        // animal sees the infections as they were at the start of the step.
+        pendingCount = 0;
+        for(int tileRow = 0; tileRow < tileRows; tileRow++) {
+            for(int tileCol = 0; tileCol < tileCols; tileCol++) {
+                if(!field.isTileEmpty(tileRow, tileCol)) {
+                    spreadInTile(tileRow, tileCol);
+                }
+            }
+        }
+        for(int i = 0; i < pendingCount; i += 2) {
+            ((Animal) field.getObjectAt(pending[i], pending[i + 1])).infect();
+        }
+        newInfections = pendingCount / 2;
+        infectedAnimals += newInfections;
+    }
+
+    /**
+     * @return The number of infected animals after the last spread.
+     */
+    public int getInfectedCount()
+    {
+        return infectedAnimals;
+    }
+
+    /**
+     * @return The number of animals infected at the last spread.
+     */
+    public int getNewInfections()
+    {
+        return newInfections;
+    }
+
+    /**
+     * @return The fraction of animals infected after the last spread.
+     */
+    public double getPrevalence()
+    {
+        if(animals == 0) {
+            return 0;
+        }
+        return (double) infectedAnimals / animals;
+    }
+
+    /**
+     * Decide which healthy animals in one tile become infected.
+     * The infected animals in and around the tile are summed into a
+     * summed-area table, which gives the number near each animal.
+     */
+    private void spreadInTile(int tileRow, int tileCol)
+    {
+        // The region of the field covered by the table.
+        int top = Math.max(tileRow * TILE_SIZE - RADIUS, 0);
+        int left = Math.max(tileCol * TILE_SIZE - RADIUS, 0);
+        int bottom = Math.min((tileRow + 1) * TILE_SIZE + RADIUS, depth);
+        int right = Math.min((tileCol + 1) * TILE_SIZE + RADIUS, width);
+        int stride = SPAN + 1;
+        boolean anyInfected = false;
+        for(int row = top; row < bottom; row++) {
+            int rowSum = 0;
+            for(int col = left; col < right; col++) {
+                if(isMarked(row, col)) {
+                    rowSum++;
+                    anyInfected = true;
+                }
+                int index = (row - top + 1) * stride + col - left + 1;
+                sums[index] = sums[index - stride] + rowSum;
+            }
+        }
+
+        int lastRow = Math.min((tileRow + 1) * TILE_SIZE, depth);
+        int lastCol = Math.min((tileCol + 1) * TILE_SIZE, width);
+        for(int row = tileRow * TILE_SIZE; row < lastRow; row++) {
+            int boxTop = Math.max(row - RADIUS, top) - top;
+            int boxBottom = Math.min(row + RADIUS + 1, bottom) - top;
+            for(int col = tileCol * TILE_SIZE; col < lastCol; col++) {
+                if(!isMarked(row, col) && isAnimal(field.getSpeciesAt(row, col))) {
+                    int nearby = 0;
+                    if(anyInfected) {
+                        int boxLeft = Math.max(col - RADIUS, left) - left;
+                        int boxRight = Math.min(col + RADIUS + 1, right) - left;
+                        nearby = sums[boxBottom * stride + boxRight] - sums[boxTop * stride + boxRight] -
+                                 sums[boxBottom * stride + boxLeft] + sums[boxTop * stride + boxLeft];
+                    }
+                    if(rand.nextDouble() < infectionChance[nearby]) {
+                        if(pendingCount == pending.length) {
+                            pending = Arrays.copyOf(pending, pendingCount * 2);
+                        }
+                        pending[pendingCount++] = row;
+                        pending[pendingCount++] = col;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @return Whether there is an infected animal at the given position.
+     */
+    private boolean isMarked(int row, int col)
+    {
+        byte[] marks = infected[(row / TILE_SIZE) * tileCols + col / TILE_SIZE];
+        return marks != null && marks[(row % TILE_SIZE) * TILE_SIZE + col % TILE_SIZE] != 0;
+    }
+
+    /**
+     * @return Whether the species is an animal.
+     */
+    private boolean isAnimal(Species species)
+    {
+        return species != Species.EMPTY && species != Species.PLANT;
+    }
+}
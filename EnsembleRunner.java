@@ -0,0 +1,254 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs many independent simulations without a view, side by side on as
+ * many threads as the machine has cores and memory for. Each run has its
+ * own seed and creation probabilities, stops early once it is no longer
+ * viable, and has a one-line summary written to a results file as soon
+ * as it finishes.
+ *
+ * The runs are either a number of runs with the default probabilities and
+ * consecutive seeds, or read from a file with one run per line: the seed,
+ * optionally followed by the creation probabilities of jaguars, tortoises,
+ * bears, deer, tigers and plants, separated by commas. Blank lines and
+ * lines starting with # are ignored.
+ *
+ * @author Anirudh George and Ahmet Bayazitoglu
+ * @version 2022.03.02
+ */
+public class EnsembleRunner
+{
+    // A generous estimate of the memory a run needs for each position of its field, in bytes.
+    private static final long BYTES_PER_POSITION = 200;
+    // The species whose probabilities may be given in a file of runs, in order.
+    private static final Species[] FILE_ORDER = {
+        Species.JAGUAR, Species.TORTOISE, Species.BEAR, Species.DEER, Species.TIGER, Species.PLANT
+    };
+
+    // The depth and width of the field of every run.
+    private int depth, width;
+    // The most steps any run is given.
+    private int steps;
+
+    /**
+     * Create a runner for simulations of the given size and length.
+     * @param depth Depth of each field. Must be greater than zero.
+     * @param width Width of each field. Must be greater than zero.
+     * @param steps The most steps to run each simulation for.
+     */
+    public EnsembleRunner(int depth, int width, int steps)
+    {
+        this.depth = depth;
+        this.width = width;
+        this.steps = steps;
+    }
+
+    /**
+     * Run an ensemble from the command line. The arguments are the depth
+     * and width of the fields, the number of steps, the results file, and
+     * then either a number of runs and the first seed, or a file of runs.
+     * @param args The command line arguments.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException
+    {
+        if(args.length != 5 && args.length != 6) {
+            System.out.println("Usage: java EnsembleRunner depth width steps results runs firstSeed");
+            System.out.println("   or: java EnsembleRunner depth width steps results runFile");
+            return;
+        }
+        EnsembleRunner runner = new EnsembleRunner(Integer.parseInt(args[0]),
+                                                   Integer.parseInt(args[1]),
+                                                   Integer.parseInt(args[2]));
+        List<Run> runs;
+        if(args.length == 6) {
+            runs = consecutiveRuns(Integer.parseInt(args[4]), Long.parseLong(args[5]));
+        }
+        else {
+            runs = readRuns(Paths.get(args[4]));
+        }
+        int threads = runner.chooseThreads();
+        System.out.println("Running " + runs.size() + " simulations on " + threads + " threads.");
+        runner.run(runs, Paths.get(args[3]), threads);
+    }
+
+    /**
+     * Make runs with the default probabilities and consecutive seeds.
+     * @param count The number of runs.
+     * @param firstSeed The seed of the first run.
+     * @return The runs.
+     */
+    public static List<Run> consecutiveRuns(int count, long firstSeed)
+    {
+        List<Run> runs = new ArrayList<>();
+        for(int i = 0; i < count; i++) {
+            runs.add(new Run(i, firstSeed + i, new CreationProbabilities()));
+        }
+        return runs;
+    }
+
+    /**
+     * Read runs from a file, as described for the class.
+     * @param file The file of runs.
+     * @return The runs.
+     */
+    public static List<Run> readRuns(Path file) throws IOException
+    {
+        List<Run> runs = new ArrayList<>();
+        try(BufferedReader reader = Files.newBufferedReader(file)) {
+            String line;
+            while((line = reader.readLine()) != null) {
+                line = line.trim();
+                if(line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] parts = line.split(",");
+                CreationProbabilities probabilities = new CreationProbabilities();
+                for(int i = 1; i < parts.length && i <= FILE_ORDER.length; i++) {
+                    probabilities.set(FILE_ORDER[i - 1], Double.parseDouble(parts[i].trim()));
+                }
+                runs.add(new Run(runs.size(), Long.parseLong(parts[0].trim()), probabilities));
+            }
+        }
+        return runs;
+    }
+
+    /**
+     * Choose how many runs to do at once: one for each core, but no
+     * more than fit in the memory the JVM may use.
+     * @return The number of threads to use.
+     */
+    public int chooseThreads()
+    {
+        int cores = Runtime.getRuntime().availableProcessors();
+        long perRun = BYTES_PER_POSITION * depth * width;
+        long fit = Runtime.getRuntime().maxMemory() / perRun;
+        return (int) Math.max(1, Math.min(cores, fit));
+    }
+
+    /**
+     * Do the given runs on the given number of threads, writing the
+     * summary of each to the results file in the order they finish.
+     * @param runs The runs to do.
+     * @param results The file to write the summaries to.
+     * @param threads The number of runs to do at once.
+     */
+    public void run(List<Run> runs, Path results, int threads) throws IOException, InterruptedException
+    {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try(PrintWriter writer = new PrintWriter(Files.newBufferedWriter(results))) {
+            writer.println(Summary.HEADER);
+            writer.flush();
+            CompletionService<Summary> finished = new ExecutorCompletionService<>(pool);
+            for(Run run : runs) {
+                finished.submit(() -> simulate(run));
+            }
+            for(int i = 0; i < runs.size(); i++) {
+                Future<Summary> summary = finished.take();
+                try {
+                    writer.println(summary.get());
+                }
+                catch(ExecutionException e) {
+                    System.err.println("A run failed: " + e.getCause());
+                }
+                writer.flush();
+            }
+        }
+        finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Do one run on the current thread.
+     * @param run The run to do.
+     * @return The summary of the run.
+     */
+    private Summary simulate(Run run)
+    {
+        long start = System.nanoTime();
+        Randomizer.setSeed(run.seed);
+        Simulator simulator = new Simulator(depth, width, false, run.probabilities);
+        simulator.simulate(steps);
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        return new Summary(run, simulator.getStep(), simulator.isViable(), millis,
+                           simulator.getPopulation(),
+                           simulator.getField().getDisease().getInfectedCount());
+    }
+
+    /**
+     * One simulation of an ensemble.
+     */
+    public static class Run
+    {
+        // The number of the run, its seed, and its creation probabilities.
+        private int id;
+        private long seed;
+        private CreationProbabilities probabilities;
+
+        /**
+         * Create a run.
+         * @param id The number of the run.
+         * @param seed The seed of the run.
+         * @param probabilities The creation probabilities of the run.
+         */
+        public Run(int id, long seed, CreationProbabilities probabilities)
+        {
+            this.id = id;
+            this.seed = seed;
+            this.probabilities = probabilities;
+        }
+    }
+
+    /**
+     * The outcome of a run, written as a line of comma-separated values.
+     */
+    private static class Summary
+    {
+        // The names of the values of a summary.
+        static final String HEADER = "run,seed,steps,viable,millis,plant,tortoise,deer,jaguar,bear,tiger,infected";
+
+        private Run run;
+        private int steps;
+        private boolean viable;
+        private long millis;
+        private int[] population;
+        private int infected;
+
+        Summary(Run run, int steps, boolean viable, long millis, int[] population, int infected)
+        {
+            this.run = run;
+            this.steps = steps;
+            this.viable = viable;
+            this.millis = millis;
+            this.population = population;
+            this.infected = infected;
+        }
+
+        public String toString()
+        {
+            StringBuilder line = new StringBuilder();
+            line.append(run.id).append(',').append(run.seed).append(',').append(steps)
+                .append(',').append(viable).append(',').append(millis);
+            for(Species species : Species.values()) {
+                if(species != Species.EMPTY) {
+                    line.append(',').append(population[species.ordinal()]);
+                }
+            }
+            line.append(',').append(infected);
+            return line.toString();
+        }
+    }
+}
@@ -1,5 +1,8 @@
-import java.util.Collections;
-import java.util.Iterator;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Random;
@@ -8,6 +11,17 @@ import java.util.Random;
  * Represent a rectangular grid of field positions.
  * Each position is able to store a single animal.
  * 
+ * The field is stored as square tiles of TILE_SIZE positions on a side.
+ * A tile is only allocated while something occupies it, so a large field
+ * that is mostly empty costs little memory, and scans of the field can
+ * skip the empty tiles.
+ * 
+ * A field can also be made off-heap. Its tiles then keep the state of each
+ * position (species tag, occupant slot and the step it last changed) in
+ * direct memory outside the Java heap, and the occupants themselves in a
+ * single slot table, so that very large fields add little for the garbage
+ * collector to trace.
+ * 
  * @author David J. Barnes and Michael Kölling
  * @author Anirudh George and Ahmet Bayazitoglu
  * @version 2022.03.02 
@@ -16,10 +30,54 @@ public class Field
 {
     // A random number generator for providing random locations.
     private static final Random rand = Randomizer.getRandom();
+    // The number of positions along each side of a tile. A tile row
+    // fits exactly into one word of an occupancy bitboard.
+    public static final int TILE_SIZE = 64;
+    // Shift and mask for finding tiles and positions within them.
+    private static final int TILE_SHIFT = 6;
+    private static final int TILE_MASK = TILE_SIZE - 1;
+    // The number of species, including EMPTY.
+    private static final int SPECIES_COUNT = Species.values().length;
+    // The species tag of a plant.
+    private static final byte PLANT_TAG = Species.PLANT.getTag();
+    // The layout of each position in an off-heap tile: the species tag,
+    // then the occupant's slot plus one, then the step it last changed.
+    private static final int CELL_BYTES = 9;
+    private static final int SLOT_OFFSET = 1;
+    private static final int STEP_OFFSET = 5;
+
     // The depth and width of the field.
     private int depth, width;
-    // Storage for the animals.
-    private Object[][] field;
+    // The number of rows and columns of tiles.
+    private int tileRows, tileCols;
+    // Storage for the animals, a tile at a time, in row-major order.
+    // Tiles with nothing in them are null.
+    private Tile[] tiles;
+    // Whether the tiles are kept off the heap.
+    private boolean offHeap;
+    // The occupants of off-heap tiles, and a stack of the free slots.
+    private volatile Object[] slots;
+    private int[] freeSlots;
+    private int slotCount, freeSlotCount;
+    // The current step, recorded against each position as it changes.
+    private int currentStep;
+    // The animals that are able to breed, by neighbourhood.
+    private MatingIndex matingIndex;
+    // The spread of disease among the animals.
+    private Disease disease;
+    // Dead organisms kept for reuse.
+    private OrganismPool pool;
+    // The time of day, which moves on with the current step.
+    private Clock clock;
+    // The steps at which the organisms change with age.
+    private AgeCalendar ageCalendar;
+    // The plants kept as a primitive grid, if the field has them.
+    private PlantLayer plantLayer;
+    // Neighbourhood offset tables, indexed by radius.
+    // A table is never changed once built; a new array is published to add one.
+    private volatile int[][] offsets = new int[0][];
+    // Reusable neighbourhood cursors, kept separately for each thread.
+    private ThreadLocal<CursorStack> cursorStacks = ThreadLocal.withInitial(CursorStack::new);
 
     /**
      * Represent a field of the given dimensions.
@@ -27,10 +85,31 @@ public class Field
      * @param width The width of the field.
      */
     public Field(int depth, int width)
+    {
+        this(depth, width, false);
+    }
+    
+    /**
+     * Represent a field of the given dimensions, optionally
+     * keeping the state of its positions off the heap.
+     * @param depth The depth of the field.
+     * @param width The width of the field.
+     * @param offHeap Whether to keep the state of the positions off the heap.
+     */
+    public Field(int depth, int width, boolean offHeap)
     {
         this.depth = depth;
         this.width = width;
-        field = new Object[depth][width];
+        this.offHeap = offHeap;
+        clearSlots();
+        tileRows = (depth + TILE_SIZE - 1) >>> TILE_SHIFT;
+        tileCols = (width + TILE_SIZE - 1) >>> TILE_SHIFT;
+        tiles = new Tile[tileRows * tileCols];
+        matingIndex = new MatingIndex(depth, width);
+        disease = new Disease(this);
+        pool = new OrganismPool();
+        clock = new Clock();
+        ageCalendar = new AgeCalendar();
     }
     
     /**
@@ -38,10 +117,13 @@ public class Field
      */
     public void clear()
     {
-        for(int row = 0; row < depth; row++) {
-            for(int col = 0; col < width; col++) {
-                field[row][col] = null;
-            }
+        Arrays.fill(tiles, null);
+        clearSlots();
+        matingIndex.clear();
+        disease.clear();
+        ageCalendar.clear();
+        if(plantLayer != null) {
+            plantLayer.clear();
         }
     }
     
@@ -51,7 +133,25 @@ public class Field
      */
     public void clear(Location location)
     {
-        field[location.getRow()][location.getCol()] = null;
+        clear(location.getRow(), location.getCol());
+    }
+    
+    /**
+     * Clear the given location.
+     * @param row Row coordinate of the location.
+     * @param col Column coordinate of the location.
+     */
+    public void clear(int row, int col)
+    {
+        int tileIndex = (row >>> TILE_SHIFT) * tileCols + (col >>> TILE_SHIFT);
+        Tile tile = tiles[tileIndex];
+        if(tile != null) {
+            tile.set(row, col, null, Species.EMPTY);
+            if(tile.population == 0) {
+                // Nothing is left in the tile, so release it.
+                tiles[tileIndex] = null;
+            }
+        }
     }
     
     /**
@@ -64,7 +164,36 @@ public class Field
      */
     public void place(Object animal, int row, int col)
     {
-        place(animal, new Location(row, col));
+        if(animal == null) {
+            clear(row, col);
+            return;
+        }
+        int tileIndex = (row >>> TILE_SHIFT) * tileCols + (col >>> TILE_SHIFT);
+        Tile tile = tiles[tileIndex];
+        if(tile == null) {
+            tile = offHeap ? new OffHeapTile() : new HeapTile();
+            tiles[tileIndex] = tile;
+        }
+        tile.set(row, col, animal, Species.of(animal));
+    }
+    
+    /**
+     * Mark the given location as holding a species with no object of its
+     * own, such as a plant of the field's plant layer.
+     * If there is already an animal at the location it will be lost.
+     * @param species The species at the location.
+     * @param row Row coordinate of the location.
+     * @param col Column coordinate of the location.
+     */
+    public void placeSpecies(Species species, int row, int col)
+    {
+        int tileIndex = (row >>> TILE_SHIFT) * tileCols + (col >>> TILE_SHIFT);
+        Tile tile = tiles[tileIndex];
+        if(tile == null) {
+            tile = offHeap ? new OffHeapTile() : new HeapTile();
+            tiles[tileIndex] = tile;
+        }
+        tile.set(row, col, null, species);
     }
     
     /**
@@ -76,7 +205,27 @@ public class Field
      */
     public void place(Object animal, Location location)
     {
-        field[location.getRow()][location.getCol()] = animal;
+        place(animal, location.getRow(), location.getCol());
+    }
+    
+    /**
+     * Return the Location object for the given position.
+     * While a position's tile is occupied there is only one Location object
+     * for each of its positions, so no new locations are made as animals
+     * move around. A position in an empty tile, or in any tile of an
+     * off-heap field, gets a new Location each time, so locations must
+     * always be compared with equals rather than ==.
+     * @param row The desired row.
+     * @param col The desired column.
+     * @return The location at that position.
+     */
+    public Location getLocation(int row, int col)
+    {
+        Tile tile = tileAt(row, col);
+        if(tile == null) {
+            return new Location(row, col);
+        }
+        return tile.getLocation(row, col, ((row & TILE_MASK) << TILE_SHIFT) | (col & TILE_MASK));
     }
     
     /**
@@ -97,7 +246,283 @@ public class Field
      */
     public Object getObjectAt(int row, int col)
     {
-        return field[row][col];
+        Tile tile = tileAt(row, col);
+        if(tile == null) {
+            return null;
+        }
+        return tile.getOccupant(((row & TILE_MASK) << TILE_SHIFT) | (col & TILE_MASK));
+    }
+    
+    /**
+     * Return the species at the given location.
+     * This reads the species grid, so the animal itself is not touched.
+     * @param location Where in the field.
+     * @return The species at the given location, or EMPTY if there is none.
+     */
+    public Species getSpeciesAt(Location location)
+    {
+        return getSpeciesAt(location.getRow(), location.getCol());
+    }
+    
+    /**
+     * Return the species at the given location.
+     * This reads the species grid, so the animal itself is not touched.
+     * @param row The desired row.
+     * @param col The desired column.
+     * @return The species at the given location, or EMPTY if there is none.
+     */
+    public Species getSpeciesAt(int row, int col)
+    {
+        Tile tile = tileAt(row, col);
+        if(tile == null) {
+            return Species.EMPTY;
+        }
+        return Species.fromTag(tile.getTag(((row & TILE_MASK) << TILE_SHIFT) | (col & TILE_MASK)));
+    }
+    
+    /**
+     * Return the step at which the given position last changed.
+     * @param row The desired row.
+     * @param col The desired column.
+     * @return The step, or -1 if the position's tile is empty.
+     */
+    public int getLastModified(int row, int col)
+    {
+        Tile tile = tileAt(row, col);
+        if(tile == null) {
+            return -1;
+        }
+        return tile.getLastModified(((row & TILE_MASK) << TILE_SHIFT) | (col & TILE_MASK));
+    }
+    
+    /**
+     * Copy the species tag of every position into the given array, in
+     * row-major order, a row of a tile at a time. Empty tiles are filled
+     * with the tag of EMPTY without being looked at.
+     * @param tags The array to fill, of depth * width bytes.
+     */
+    public void copyTags(byte[] tags)
+    {
+        for(int tileRow = 0; tileRow < tileRows; tileRow++) {
+            for(int tileCol = 0; tileCol < tileCols; tileCol++) {
+                Tile tile = tiles[tileRow * tileCols + tileCol];
+                int firstRow = tileRow << TILE_SHIFT;
+                int firstCol = tileCol << TILE_SHIFT;
+                int lastRow = Math.min(firstRow + TILE_SIZE, depth);
+                int length = Math.min(TILE_SIZE, width - firstCol);
+                for(int row = firstRow; row < lastRow; row++) {
+                    int offset = row * width + firstCol;
+                    if(tile == null) {
+                        Arrays.fill(tags, offset, offset + length, Species.EMPTY.getTag());
+                    }
+                    else {
+                        tile.copyTags((row & TILE_MASK) << TILE_SHIFT, tags, offset, length);
+                    }
+                }
+            }
+        }
+    }
+    
+    /**
+     * Set the current step of the simulation. Positions that change
+     * from now on are recorded as having changed at this step, and the
+     * field's clock is set to the step.
+     * @param step The current step.
+     */
+    public void setCurrentStep(int step)
+    {
+        currentStep = step;
+        clock.setStep(step);
+    }
+    
+    /**
+     * @return Whether the state of the field's positions is kept off the heap.
+     */
+    public boolean isOffHeap()
+    {
+        return offHeap;
+    }
+    
+    /**
+     * @return The number of rows of tiles in the field.
+     */
+    public int getTileRows()
+    {
+        return tileRows;
+    }
+    
+    /**
+     * @return The number of columns of tiles in the field.
+     */
+    public int getTileCols()
+    {
+        return tileCols;
+    }
+    
+    /**
+     * Write the contents of the field to a checkpoint: the occupant of each
+     * occupied position, then the plant layer, the disease, the mating index
+     * and the age calendar. The organisms must have been written already.
+     * @param out The checkpoint being written.
+     */
+    public void write(Checkpoint.Output out) throws IOException
+    {
+        for(int tileRow = 0; tileRow < tileRows; tileRow++) {
+            for(int tileCol = 0; tileCol < tileCols; tileCol++) {
+                if(isTileEmpty(tileRow, tileCol)) {
+                    continue;
+                }
+                int lastRow = Math.min((tileRow + 1) * TILE_SIZE, depth);
+                int lastCol = Math.min((tileCol + 1) * TILE_SIZE, width);
+                for(int row = tileRow * TILE_SIZE; row < lastRow; row++) {
+                    for(int col = tileCol * TILE_SIZE; col < lastCol; col++) {
+                        Species species = getSpeciesAt(row, col);
+                        if(species != Species.EMPTY) {
+                            out.putInt(row);
+                            out.putInt(col);
+                            out.putByte(species.getTag());
+                            out.putOrganism((Organism) getObjectAt(row, col));
+                        }
+                    }
+                }
+            }
+        }
+        out.putInt(-1);
+        if(plantLayer != null) {
+            plantLayer.write(out);
+        }
+        disease.write(out);
+        matingIndex.write(out);
+        ageCalendar.write(out);
+    }
+    
+    /**
+     * Replace the contents of the field with those read from a checkpoint.
+     * The organisms must have been read already, and the field must have
+     * a plant layer if the one written did.
+     * @param in The checkpoint being read.
+     */
+    public void read(Checkpoint.Input in) throws IOException
+    {
+        clear();
+        for(int row = in.getInt(); row >= 0; row = in.getInt()) {
+            int col = in.getInt();
+            Species species = Species.fromTag(in.getByte());
+            Organism organism = in.getOrganism();
+            if(organism != null) {
+                place(organism, row, col);
+            }
+            else {
+                placeSpecies(species, row, col);
+            }
+        }
+        if(plantLayer != null) {
+            plantLayer.read(in);
+        }
+        disease.read(in);
+        matingIndex.read(in);
+        ageCalendar.read(in);
+    }
+    
+    /**
+     * Return the number of positions holding the given species, or the
+     * number of empty positions for EMPTY. Each tile keeps count of its
+     * own positions as they change, so only the tiles are added up; the
+     * field is not scanned.
+     * @param species The species to count.
+     * @return The number of positions holding the species. The number of
+     *         empty positions is given as Integer.MAX_VALUE if it is larger.
+     */
+    public int getCount(Species species)
+    {
+        return (int) Math.min(countOf(species), Integer.MAX_VALUE);
+    }
+    
+    /**
+     * Count the positions holding each species by scanning the whole field,
+     * and compare the counts with those kept as the field changed. This is
+     * a check for debugging, and is meant to be asserted.
+     * @return true if the counts agree.
+     * @throws IllegalStateException if a count does not agree.
+     */
+    public boolean checkCounts()
+    {
+        long[] counts = new long[SPECIES_COUNT];
+        for(int row = 0; row < depth; row++) {
+            for(int col = 0; col < width; col++) {
+                counts[getSpeciesAt(row, col).getTag()]++;
+            }
+        }
+        for(Species species : Species.values()) {
+            if(counts[species.getTag()] != countOf(species)) {
+                throw new IllegalStateException("The field holds " + counts[species.getTag()] + " " +
+                                                species + " but counted " + countOf(species));
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Check whether a tile of the field is empty. Scans of the field
+     * can skip the positions of empty tiles.
+     * @param tileRow The row of the tile.
+     * @param tileCol The column of the tile.
+     * @return true if nothing occupies the tile.
+     */
+    public boolean isTileEmpty(int tileRow, int tileCol)
+    {
+        return tiles[tileRow * tileCols + tileCol] == null;
+    }
+    
+    /**
+     * Find the nearest location within the given radius that holds one
+     * of the given species. This works a ring at a time on the occupancy
+     * bitboards, so the animals themselves are not touched. If several
+     * locations in the nearest ring match, one is picked at random.
+     * @param location The location to search around.
+     * @param radius How many rows and columns away from it to look.
+     * @param speciesMask The species to look for, as a combination of
+     *                    their Species.getMask() values.
+     * @return The nearest matching location, or null if there is none.
+     */
+    public Location nearestOccupant(Location location, int radius, int speciesMask)
+    {
+        int row = location.getRow();
+        int col = location.getCol();
+        for(int d = 1; d <= radius; d++) {
+            int hits = 0;
+            for(int r = Math.max(row - d, 0); r <= Math.min(row + d, depth - 1); r++) {
+                if(r == row - d || r == row + d) {
+                    hits += countSpan(r, col - d, col + d, speciesMask);
+                }
+                else {
+                    hits += countSpan(r, col - d, col - d, speciesMask) +
+                            countSpan(r, col + d, col + d, speciesMask);
+                }
+            }
+            if(hits > 0) {
+                int pick = rand.nextInt(hits);
+                for(int r = Math.max(row - d, 0); r <= Math.min(row + d, depth - 1); r++) {
+                    int found;
+                    if(r == row - d || r == row + d) {
+                        found = selectSpan(r, col - d, col + d, speciesMask, pick);
+                        pick -= countSpan(r, col - d, col + d, speciesMask);
+                    }
+                    else {
+                        found = selectSpan(r, col - d, col - d, speciesMask, pick);
+                        pick -= countSpan(r, col - d, col - d, speciesMask);
+                        if(found < 0) {
+                            found = selectSpan(r, col + d, col + d, speciesMask, pick);
+                            pick -= countSpan(r, col + d, col + d, speciesMask);
+                        }
+                    }
+                    if(found >= 0) {
+                        return getLocation(r, found);
+                    }
+                }
+            }
+        }
+        return null;
     }
     
     /**
@@ -110,8 +535,12 @@ public class Field
      */
     public Location randomAdjacentLocation(Location location)
     {
-        List<Location> adjacent = adjacentLocations(location);
-        return adjacent.get(0);
+        try(Neighbourhood cells = neighbours(location, 1)) {
+            if(cells.next()) {
+                return cells.getLocation();
+            }
+            return location;
+        }
     }
     
     /**
@@ -122,19 +551,7 @@ public class Field
      */
     public List<Location> getFreeAdjacentLocations(Location location)
     {
-        List<Location> free = new LinkedList<>();
-        List<Location> adjacent = adjacentLocations(location);
-        //List<Location> adjacent = adjacentNLocations(location, 5);
-        for(int i = 0; i < adjacent.size(); i++)  {
-            if(getObjectAt(adjacent.get(i)) == null) {
-                free.add(adjacent.get(i));
-            }
-            else if(getObjectAt(adjacent.get(i)).getClass() == Plant.class) {
-                free.add(adjacent.get(i));
-                clear(adjacent.get(i));
-            }
-        }
-        return free;
+        return freeLocations(location, 1);
     }
     
     /**
@@ -145,19 +562,7 @@ public class Field
      */
     public List<Location> getFreeNAdjacentLocations(Location location, int steps)
     {
-        List<Location> free = new LinkedList<>();
-        //List<Location> adjacent = adjacentLocations(location);
-        List<Location> adjacent = adjacentNLocations(location, steps);
-        for(int i = 0; i < adjacent.size(); i++)  {
-            if(getObjectAt(adjacent.get(i)) == null) {
-                free.add(adjacent.get(i));
-            }
-            else if(getObjectAt(adjacent.get(i)).getClass() == Plant.class) {
-                free.add(adjacent.get(i));
-                clear(adjacent.get(i));
-            }
-        }
-        return free;
+        return freeLocations(location, steps + 1);
     }
     
     /**
@@ -170,12 +575,10 @@ public class Field
      */
     public Location freeAdjacentLocation(Location location)
     {
-        // The available free ones.
-        List<Location> free = getFreeAdjacentLocations(location);
-        if(free.size() > 0) {
-            return free.get(0);
-        }
-        else {
+        try(Neighbourhood cells = neighbours(location, 1)) {
+            if(cells.nextFree()) {
+                return cells.getLocation();
+            }
             return null;
         }
     }
@@ -189,30 +592,7 @@ public class Field
      */
     public List<Location> adjacentLocations(Location location)
     {
-        assert location != null : "Null location passed to adjacentLocations";
-        // The list of locations to be returned.
-        List<Location> locations = new LinkedList<>();
-        if(location != null) {
-            int row = location.getRow();
-            int col = location.getCol();
-            for(int roffset = -1; roffset <= 1; roffset++) {
-                int nextRow = row + roffset;
-                if(nextRow >= 0 && nextRow < depth) {
-                    for(int coffset = -1; coffset <= 1; coffset++) {
-                        int nextCol = col + coffset;
-                        // Exclude invalid locations and the original location.
-                        if(nextCol >= 0 && nextCol < width && (roffset != 0 || coffset != 0)) {
-                            locations.add(new Location(nextRow, nextCol));
-                        }
-                    }
-                }
-            }
-            
-            // Shuffle the list. Several other methods rely on the list
-            // being in a random order.
-            Collections.shuffle(locations, rand);
-        }
-        return locations;
+        return adjacentNLocations(location, 0);
     }
     
     /**
@@ -226,30 +606,639 @@ public class Field
     {
         assert location != null : "Null location passed to adjacentLocations";
         // The list of locations to be returned.
-        List<Location> locations = new LinkedList<>();
+        List<Location> locations = new ArrayList<>();
         if(location != null) {
-            int row = location.getRow();
-            int col = location.getCol();
-            for(int roffset = -1 - n; roffset <= 1 + n; roffset++) {
-                int nextRow = row + roffset;
-                if(nextRow >= 0 && nextRow < depth) {
-                    for(int coffset = -1 - n; coffset <= 1 + n; coffset++) {
-                        int nextCol = col + coffset;
-                        // Exclude invalid locations and the original location.
-                        if(nextCol >= 0 && nextCol < width && (roffset != 0 || coffset != 0)) {
-                            locations.add(new Location(nextRow, nextCol));
-                        }
-                    }
+            try(Neighbourhood cells = neighbours(location, n + 1)) {
+                while(cells.next()) {
+                    locations.add(cells.getLocation());
                 }
             }
-            
-            // Shuffle the list. Several other methods rely on the list
-            // being in a random order.
-            Collections.shuffle(locations, rand);
         }
         return locations;
     }
+    
+    /**
+     * Open a cursor over the locations within the given radius of a location,
+     * in a random order. The location itself is not visited, and all the
+     * visited locations lie within the grid.
+     * The cursor must be closed when it is no longer needed, which is
+     * easiest to do with a try-with-resources statement. Cursors may be
+     * nested, but must be closed in the reverse order to which they were opened.
+     * Each thread has its own cursors.
+     * @param location The location at the centre of the neighbourhood.
+     * @param radius How many rows and columns away from the centre to look.
+     * @return A cursor over the neighbourhood.
+     */
+    public Neighbourhood neighbours(Location location, int radius)
+    {
+        assert location != null : "Null location passed to neighbours";
+        CursorStack stack = cursorStacks.get();
+        if(stack.open == stack.cursors.length) {
+            stack.cursors = Arrays.copyOf(stack.cursors, stack.open * 2);
+        }
+        Neighbourhood cursor = stack.cursors[stack.open];
+        if(cursor == null) {
+            cursor = new Neighbourhood(stack);
+            stack.cursors[stack.open] = cursor;
+        }
+        stack.open++;
+        cursor.open(location.getRow(), location.getCol(), radius);
+        return cursor;
+    }
+    
+    /**
+     * Get a shuffled list of the free locations within the given radius.
+     * Plants in the neighbourhood are removed to make space.
+     * @param location The centre of the neighbourhood.
+     * @param radius How far to look.
+     * @return A list of free locations.
+     */
+    private List<Location> freeLocations(Location location, int radius)
+    {
+        List<Location> free = new LinkedList<>();
+        try(Neighbourhood cells = neighbours(location, radius)) {
+            while(cells.nextFree()) {
+                free.add(cells.getLocation());
+            }
+        }
+        return free;
+    }
+    
+    /**
+     * Return the table of row and column offsets for the given radius,
+     * building it the first time it is asked for. Each offset is stored
+     * as a pair of entries: the row offset followed by the column offset.
+     * @param radius The radius of the neighbourhood.
+     * @return The offsets of every location in the neighbourhood except the centre.
+     */
+    private int[] offsetsFor(int radius)
+    {
+        int[][] tables = offsets;
+        if(radius < tables.length && tables[radius] != null) {
+            return tables[radius];
+        }
+        return buildOffsets(radius);
+    }
+    
+    /**
+     * Build the table of offsets for the given radius and publish it.
+     * @param radius The radius of the neighbourhood.
+     * @return The offsets table.
+     */
+    private synchronized int[] buildOffsets(int radius)
+    {
+        int[][] tables = Arrays.copyOf(offsets, Math.max(offsets.length, radius + 1));
+        if(tables[radius] == null) {
+            int side = 2 * radius + 1;
+            int[] table = new int[2 * (side * side - 1)];
+            int next = 0;
+            for(int roffset = -radius; roffset <= radius; roffset++) {
+                for(int coffset = -radius; coffset <= radius; coffset++) {
+                    if(roffset != 0 || coffset != 0) {
+                        table[next++] = roffset;
+                        table[next++] = coffset;
+                    }
+                }
+            }
+            tables[radius] = table;
+            offsets = tables;
+        }
+        return tables[radius];
+    }
+
+    /**
+     * Add up the tiles' counts of the given species. The empty positions
+     * are those of the whole field less the occupied ones.
+     */
+    private long countOf(Species species)
+    {
+        long count = 0;
+        for(Tile tile : tiles) {
+            if(tile != null) {
+                count += species == Species.EMPTY ? tile.population : tile.counts[species.getTag()];
+            }
+        }
+        return species == Species.EMPTY ? (long) depth * width - count : count;
+    }
+    
+    /**
+     * Empty the slot table used by off-heap tiles.
+     */
+    private void clearSlots()
+    {
+        slots = new Object[offHeap ? 1024 : 0];
+        freeSlots = new int[slots.length];
+        slotCount = 0;
+        freeSlotCount = 0;
+    }
+    
+    /**
+     * Return the tile holding the given position.
+     * @return The tile, or null if it is empty.
+     */
+    private Tile tileAt(int row, int col)
+    {
+        return tiles[(row >>> TILE_SHIFT) * tileCols + (col >>> TILE_SHIFT)];
+    }
+    
+    /**
+     * Count the locations in part of a row that hold one of the given species.
+     * @param row The row.
+     * @param firstCol The first column of the span; clipped to the field.
+     * @param lastCol The last column of the span; clipped to the field.
+     * @param speciesMask The species to look for.
+     * @return How many matching locations there are in the span.
+     */
+    private int countSpan(int row, int firstCol, int lastCol, int speciesMask)
+    {
+        firstCol = Math.max(firstCol, 0);
+        lastCol = Math.min(lastCol, width - 1);
+        int count = 0;
+        if(firstCol <= lastCol) {
+            for(int word = firstCol >>> 6; word <= lastCol >>> 6; word++) {
+                count += Long.bitCount(spanBits(row, word, firstCol, lastCol, speciesMask));
+            }
+        }
+        return count;
+    }
+    
+    /**
+     * Find the column of the n'th location in part of a row that holds
+     * one of the given species, counting from zero.
+     * @return The column, or -1 if there are not that many matches in the span.
+     */
+    private int selectSpan(int row, int firstCol, int lastCol, int speciesMask, int n)
+    {
+        firstCol = Math.max(firstCol, 0);
+        lastCol = Math.min(lastCol, width - 1);
+        if(n >= 0 && firstCol <= lastCol) {
+            for(int word = firstCol >>> 6; word <= lastCol >>> 6; word++) {
+                long bits = spanBits(row, word, firstCol, lastCol, speciesMask);
+                int count = Long.bitCount(bits);
+                if(n < count) {
+                    for(int i = 0; i < n; i++) {
+                        // Drop the lowest set bit.
+                        bits &= bits - 1;
+                    }
+                    return (word << 6) + Long.numberOfTrailingZeros(bits);
+                }
+                n -= count;
+            }
+        }
+        return -1;
+    }
+    
+    /**
+     * Combine the bitboards of the given species for one word of a row,
+     * keeping only the bits between the given columns. Each word of a
+     * row is the row of one tile.
+     */
+    private long spanBits(int row, int word, int firstCol, int lastCol, int speciesMask)
+    {
+        Tile tile = tiles[(row >>> TILE_SHIFT) * tileCols + word];
+        if(tile == null) {
+            return 0;
+        }
+        long bits = 0;
+        for(int tag = 1; tag < SPECIES_COUNT; tag++) {
+            if((speciesMask & (1 << tag)) != 0) {
+                bits |= tile.occupancy[tag][row & TILE_MASK];
+            }
+        }
+        int base = word << 6;
+        if(firstCol > base) {
+            bits &= -1L << (firstCol - base);
+        }
+        if(lastCol < base + 63) {
+            bits &= -1L >>> (63 - (lastCol - base));
+        }
+        return bits;
+    }
+
+    /**
+     * A square block of the field's positions.
+     */
+    private abstract class Tile
+    {
+        // One occupancy bitboard per species, indexed by species tag,
+        // with one word for each row of the tile. Empty positions are not recorded.
+        long[][] occupancy = new long[SPECIES_COUNT][TILE_SIZE];
+        // How many positions in the tile are occupied, and how many hold
+        // each species, indexed by species tag. EMPTY is not counted.
+        int population;
+        int[] counts = new int[SPECIES_COUNT];
+
+        /**
+         * Set the occupant of a position in the tile, keeping the species
+         * tags, bitboards, population and species counts up to date.
+         */
+        void set(int row, int col, Object occupant, Species kind)
+        {
+            int tileRow = row & TILE_MASK;
+            int index = (tileRow << TILE_SHIFT) | (col & TILE_MASK);
+            long bit = 1L << col;
+            byte previous = getTag(index);
+            if(previous != Species.EMPTY.getTag()) {
+                occupancy[previous][tileRow] &= ~bit;
+                population--;
+                counts[previous]--;
+                if(previous == PLANT_TAG && plantLayer != null) {
+                    // A plant of the plant layer is eaten, trampled or dies.
+                    plantLayer.uproot(row, col);
+                }
+            }
+            if(kind != Species.EMPTY) {
+                occupancy[kind.getTag()][tileRow] |= bit;
+                population++;
+                counts[kind.getTag()]++;
+            }
+            store(index, occupant, kind.getTag());
+        }
+
+        /**
+         * @return The occupant of the position with the given index in the tile.
+         */
+        abstract Object getOccupant(int index);
+
+        /**
+         * @return The species tag of the position with the given index in the tile.
+         */
+        abstract byte getTag(int index);
+
+        /**
+         * @return The step at which the position with the given index last changed.
+         */
+        abstract int getLastModified(int index);
+
+        /**
+         * Copy the species tags of the given number of positions, starting
+         * with the one with the given index, into an array.
+         */
+        abstract void copyTags(int index, byte[] tags, int offset, int length);
+
+        /**
+         * @return A Location for the position with the given index in the tile.
+         */
+        abstract Location getLocation(int row, int col, int index);
+
+        /**
+         * Record the occupant and species tag of a position, and that it changed this step.
+         */
+        abstract void store(int index, Object occupant, byte tag);
+    }
+
+    /**
+     * A tile whose state is held in arrays on the heap.
+     */
+    private class HeapTile extends Tile
+    {
+        // The occupants, species tags, Location objects and change
+        // steps of the positions in the tile, in row-major order.
+        Object[] occupants = new Object[TILE_SIZE * TILE_SIZE];
+        byte[] species = new byte[TILE_SIZE * TILE_SIZE];
+        Location[] locations = new Location[TILE_SIZE * TILE_SIZE];
+        int[] modified = new int[TILE_SIZE * TILE_SIZE];
+
+        Object getOccupant(int index)
+        {
+            return occupants[index];
+        }
+
+        byte getTag(int index)
+        {
+            return species[index];
+        }
+
+        int getLastModified(int index)
+        {
+            return modified[index];
+        }
+
+        void copyTags(int index, byte[] tags, int offset, int length)
+        {
+            System.arraycopy(species, index, tags, offset, length);
+        }
+
+        Location getLocation(int row, int col, int index)
+        {
+            Location location = locations[index];
+            if(location == null) {
+                location = new Location(row, col);
+                locations[index] = location;
+            }
+            return location;
+        }
+
+        void store(int index, Object occupant, byte tag)
+        {
+            occupants[index] = occupant;
+            species[index] = tag;
+            modified[index] = currentStep;
+        }
+    }
+
+    /**
+     * A tile whose state is held in direct memory off the heap.
+     * The occupants are kept in the field's slot table, and each
+     * position records the slot of its occupant.
+     */
+    private class OffHeapTile extends Tile
+    {
+        // The state of each position, CELL_BYTES at a time, in row-major order.
+        // Direct memory starts zeroed, which is an empty position.
+        ByteBuffer cells = ByteBuffer.allocateDirect(TILE_SIZE * TILE_SIZE * CELL_BYTES)
+                                     .order(ByteOrder.nativeOrder());
 
+        Object getOccupant(int index)
+        {
+            int slot = cells.getInt(index * CELL_BYTES + SLOT_OFFSET) - 1;
+            return slot < 0 ? null : slots[slot];
+        }
+
+        byte getTag(int index)
+        {
+            return cells.get(index * CELL_BYTES);
+        }
+
+        int getLastModified(int index)
+        {
+            return cells.getInt(index * CELL_BYTES + STEP_OFFSET);
+        }
+
+        void copyTags(int index, byte[] tags, int offset, int length)
+        {
+            for(int i = 0; i < length; i++) {
+                tags[offset + i] = cells.get((index + i) * CELL_BYTES);
+            }
+        }
+
+        Location getLocation(int row, int col, int index)
+        {
+            return new Location(row, col);
+        }
+
+        void store(int index, Object occupant, byte tag)
+        {
+            int offset = index * CELL_BYTES;
+            int slot = cells.getInt(offset + SLOT_OFFSET) - 1;
+            synchronized(Field.this) {
+                slot = moveSlot(slot, occupant);
+            }
+            cells.put(offset, tag);
+            cells.putInt(offset + SLOT_OFFSET, slot + 1);
+            cells.putInt(offset + STEP_OFFSET, currentStep);
+        }
+
+        /**
+         * Free the given slot, if any, and find a slot for the new occupant.
+         * @return The new occupant's slot, or -1 if there is no occupant.
+         */
+        private int moveSlot(int slot, Object occupant)
+        {
+            if(slot >= 0) {
+                // Free the previous occupant's slot.
+                slots[slot] = null;
+                if(freeSlotCount == freeSlots.length) {
+                    freeSlots = Arrays.copyOf(freeSlots, freeSlotCount * 2);
+                }
+                freeSlots[freeSlotCount++] = slot;
+                slot = -1;
+            }
+            if(occupant != null) {
+                if(freeSlotCount > 0) {
+                    slot = freeSlots[--freeSlotCount];
+                }
+                else {
+                    if(slotCount == slots.length) {
+                        slots = Arrays.copyOf(slots, slotCount * 2);
+                    }
+                    slot = slotCount++;
+                }
+                slots[slot] = occupant;
+            }
+            return slot;
+        }
+    }
+
+    /**
+     * The neighbourhood cursors of one thread, and how many are currently open.
+     */
+    private class CursorStack
+    {
+        Neighbourhood[] cursors = new Neighbourhood[4];
+        int open;
+    }
+
+    /**
+     * A reusable cursor over a neighbourhood of the field.
+     * The offsets of the neighbourhood are shuffled a step at a time as
+     * the cursor advances, so only the locations actually visited cost a
+     * random number, and nothing is allocated while walking.
+     */
+    public class Neighbourhood implements AutoCloseable
+    {
+        // The stack of cursors this one belongs to.
+        private CursorStack stack;
+        // The offsets table being walked.
+        private int[] table;
+        // The order in which to visit the entries of the table.
+        private int[] order = new int[0];
+        // How many entries there are, and how many have been visited.
+        private int size, visited;
+        // The centre of the neighbourhood.
+        private int centreRow, centreCol;
+        // Whether the whole neighbourhood lies within the field.
+        private boolean interior;
+        // The current location.
+        private int row, col;
+
+        /**
+         * Create a cursor belonging to the given stack.
+         */
+        private Neighbourhood(CursorStack stack)
+        {
+            this.stack = stack;
+        }
+
+        /**
+         * Start walking the neighbourhood of the given centre.
+         */
+        private void open(int centreRow, int centreCol, int radius)
+        {
+            table = offsetsFor(radius);
+            size = table.length / 2;
+            if(order.length < size) {
+                order = new int[size];
+            }
+            for(int i = 0; i < size; i++) {
+                order[i] = i;
+            }
+            visited = 0;
+            this.centreRow = centreRow;
+            this.centreCol = centreCol;
+            interior = centreRow - radius >= 0 && centreRow + radius < depth &&
+                       centreCol - radius >= 0 && centreCol + radius < width;
+        }
+
+        /**
+         * Move to the next location in the neighbourhood.
+         * @return true if there was another location, false if the
+         *         whole neighbourhood has been visited.
+         */
+        public boolean next()
+        {
+            while(visited < size) {
+                // One step of a Fisher-Yates shuffle.
+                int pick = visited + rand.nextInt(size - visited);
+                int entry = order[pick];
+                order[pick] = order[visited];
+                order[visited] = entry;
+                visited++;
+
+                row = centreRow + table[2 * entry];
+                col = centreCol + table[2 * entry + 1];
+                if(interior || (row >= 0 && row < depth && col >= 0 && col < width)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Move to the next free location in the neighbourhood.
+         * A location holding a plant counts as free: the plant
+         * is cleared from the field to make space.
+         * @return true if a free location was found.
+         */
+        public boolean nextFree()
+        {
+            while(next()) {
+                Species occupant = getSpecies();
+                if(occupant == Species.EMPTY) {
+                    return true;
+                }
+                else if(occupant == Species.PLANT) {
+                    clear(row, col);
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * @return The row of the current location.
+         */
+        public int getRow()
+        {
+            return row;
+        }
+
+        /**
+         * @return The column of the current location.
+         */
+        public int getCol()
+        {
+            return col;
+        }
+
+        /**
+         * @return The current location.
+         */
+        public Location getLocation()
+        {
+            return Field.this.getLocation(row, col);
+        }
+
+        /**
+         * @return The animal at the current location, or null if there is none.
+         */
+        public Object getObject()
+        {
+            return getObjectAt(row, col);
+        }
+
+        /**
+         * @return The species at the current location.
+         */
+        public Species getSpecies()
+        {
+            return getSpeciesAt(row, col);
+        }
+
+        /**
+         * Finish with this cursor so that it can be reused.
+         */
+        public void close()
+        {
+            assert stack.cursors[stack.open - 1] == this : "Neighbourhood closed out of order";
+            stack.open--;
+        }
+    }
+
+    /**
+     * Return the index of animals in the field that are able to breed.
+     * @return The mating index.
+     */
+    public MatingIndex getMatingIndex()
+    {
+        return matingIndex;
+    }
+    
+    /**
+     * Return the disease spreading among the animals in the field.
+     * @return The disease.
+     */
+    public Disease getDisease()
+    {
+        return disease;
+    }
+    
+    /**
+     * Return the pool of dead organisms kept for reuse in the field.
+     * @return The organism pool.
+     */
+    public OrganismPool getPool()
+    {
+        return pool;
+    }
+    
+    /**
+     * Return the clock giving the time of day in the field.
+     * @return The clock.
+     */
+    public Clock getClock()
+    {
+        return clock;
+    }
+    
+    /**
+     * Return the calendar of the steps at which the organisms change with age.
+     * @return The age calendar.
+     */
+    public AgeCalendar getAgeCalendar()
+    {
+        return ageCalendar;
+    }
+    
+    /**
+     * Return the plant layer of the field, if it has one.
+     * @return The plant layer, or null if the plants are objects.
+     */
+    public PlantLayer getPlantLayer()
+    {
+        return plantLayer;
+    }
+    
+    /**
+     * Keep the plants of the field in the given plant layer, which is
+     * told whenever a location holding a plant is taken or cleared.
+     * @param plantLayer The plant layer, or null if the plants are objects.
+     */
+    void setPlantLayer(PlantLayer plantLayer)
+    {
+        this.plantLayer = plantLayer;
+    }
+    
     /**
      * Return the depth of the field.
      * @return The depth of the field.
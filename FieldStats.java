@@ -65,6 +65,16 @@ public class FieldStats
      * @param animalClass The class of animal to increment.
      */
     public void incrementCount(Class animalClass)
+    {
+        incrementCount(animalClass, 1);
+    }
+
+    /**
+     * Increment the count for one class of animal by the given amount.
+     * @param animalClass The class of animal to increment.
+     * @param amount The amount to add to the count.
+     */
+    public void incrementCount(Class<?> animalClass, int amount)
     {
         Counter count = counters.get(animalClass);
         if(count == null) {
@@ -73,7 +83,7 @@ public class FieldStats
             count = new Counter(animalClass.getName());
             counters.put(animalClass, count);
         }
-        count.increment();
+        count.increment(amount);
     }
 
     /**
@@ -107,20 +117,17 @@ public class FieldStats
     
     /**
      * Generate counts of the number of each species.
-     * These are not kept up to date as each species
-     * are placed in the field, but only when a request
-     * is made for the information.
+     * The field keeps count of each species as it changes,
+     * so the counts are copied rather than the field scanned.
      * @param field The field to generate the stats for.
      */
     private void generateCounts(Field field)
     {
         reset();
-        for(int row = 0; row < field.getDepth(); row++) {
-            for(int col = 0; col < field.getWidth(); col++) {
-                Object animal = field.getObjectAt(row, col);
-                if(animal != null) {
-                    incrementCount(animal.getClass());
-                }
+        for(Species species : Species.values()) {
+            int count = field.getCount(species);
+            if(species != Species.EMPTY && (count > 0 || counters.containsKey(species.getType()))) {
+                incrementCount(species.getType(), count);
             }
         }
         countsValid = true;
@@ -0,0 +1,55 @@
+/**
+ * Measure the heap taken by a populated field: a simulation is created with
+ * every location occupied, and the growth of the used heap is printed, in
+ * total and for each organism.
+ *
+ * The figures include the field's own grids, so they are an upper bound on
+ * the size of an organism. Give the JVM enough heap for the field, e.g.
+ * java -Xmx3g FootprintReport 1000 1000
+ *
+ * @author Anirudh George and Ahmet Bayazitoglu
+ * @version 2022.03.02
+ */
+public class FootprintReport
+{
+    /**
+     * Run the report. The arguments are the depth and width of the field,
+     * which default to a field of a million locations.
+     * @param args The command line arguments.
+     */
+    public static void main(String[] args)
+    {
+        int depth = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int width = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+
+        // Fill every location: what is not an animal is a plant.
+        CreationProbabilities probabilities = new CreationProbabilities();
+        probabilities.set(Species.PLANT, 1.0);
+
+        long before = usedHeap();
+        Simulator simulator = new Simulator(depth, width, false, probabilities);
+        long after = usedHeap();
+
+        int organisms = 0;
+        for(int count : simulator.getPopulation()) {
+            organisms += count;
+        }
+        System.out.printf("Organisms: %d%n", organisms);
+        System.out.printf("Heap used: %.1f MB%n", (after - before) / 1e6);
+        System.out.printf("Per organism: %.1f bytes%n", (double) (after - before) / organisms);
+        // Keep the simulation reachable until it has been measured.
+        System.out.println(simulator.getStep() == 0 ? "" : "?");
+    }
+
+    /**
+     * @return The heap in use once the garbage has been collected.
+     */
+    private static long usedHeap()
+    {
+        Runtime runtime = Runtime.getRuntime();
+        for(int i = 0; i < 4; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,459 @@
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Plays back a run recorded by a FrameRecorder, one frame at a time.
+ * The species grid is rebuilt from the keyframes and deltas, and is
+ * updated in place as each frame is read.
+ *
+ * The file is read through memory-mapped windows, so a frame is inflated
+ * straight from the mapping without being copied. The reader can also
+ * seek to any frame, using the index of the frames and keyframes that the
+ * recorder writes at the end of the file, which is read when the file is
+ * opened. A seek inflates the last keyframe at or before the frame and
+ * applies only the deltas after it, or carries on from the current frame
+ * if that is nearer. A file with no index, because it was cut short, is
+ * indexed when first needed by scanning the headers of its frames.
+ *
+ * Run this class with the name of a file to print the population of
+ * each species in every frame as CSV.
+ *
+ * @author Anirudh George and Ahmet Bayazitoglu
+ * @version 2022.03.02
+ */
+public class FrameReader implements AutoCloseable
+{
+    // The size of the windows of the file mapped into memory.
+    private static final int WINDOW_SIZE = 1 << 26;
+    // The length of the file's header, and of the header of each frame.
+    static final int HEADER_LENGTH = 20;
+    static final int FRAME_HEADER_LENGTH = 13;
+
+    private FileChannel channel;
+    // The window of the file mapped, and where in the file it starts.
+    private MappedByteBuffer window;
+    private long windowStart;
+    private Inflater inflater = new Inflater();
+    // The size of the field, and how many frames apart keyframes are.
+    private int depth, width, keyframeInterval;
+    // The species grid of the current frame, in row-major order.
+    private byte[] tags;
+    // The step of the current frame, and whether it is a keyframe.
+    private int step;
+    private boolean keyframe;
+    // The position in the file of the current frame, and of the next.
+    private long position, nextPosition;
+    // The number of the current frame, counting from 0, or -1 before the first.
+    private int frame = -1;
+    // The changes of a delta, and how far through them the reader is.
+    private byte[] changes = new byte[1024];
+    private int cursor;
+    // The index of the frames, read from the end of the file or else built
+    // from the headers: the number of frames and of keyframes, the position
+    // and step of each frame, and the number of each keyframe.
+    private int frameCount, keyframeCount;
+    private long[] framePositions;
+    private int[] frameSteps;
+    private int[] keyframes;
+
+    /**
+     * Open a recording to be played back from the start.
+     * @param path The file written by a FrameRecorder.
+     * @throws IOException If the file cannot be read, or is not a recording.
+     */
+    public FrameReader(Path path) throws IOException
+    {
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        if(!map(0, HEADER_LENGTH) || window.getInt(0) != FrameRecorder.MAGIC
+                                  || window.getInt(4) != FrameRecorder.VERSION) {
+            close();
+            throw new IOException("Not a frame recording of this version: " + path);
+        }
+        depth = window.getInt(8);
+        width = window.getInt(12);
+        keyframeInterval = window.getInt(16);
+        tags = new byte[depth * width];
+        nextPosition = HEADER_LENGTH;
+        readIndex();
+    }
+
+    /**
+     * Read the next frame, bringing the grid up to date.
+     * @return true if there was a frame; false at the end of the recording.
+     * @throws IOException If the file cannot be read or is damaged.
+     */
+    public boolean next() throws IOException
+    {
+        if(!map(nextPosition, FRAME_HEADER_LENGTH)) {
+            return false;
+        }
+        int offset = (int) (nextPosition - windowStart);
+        byte kind = window.get(offset);
+        if(kind == FrameRecorder.INDEX) {
+            return false;
+        }
+        boolean isKeyframe = kind == FrameRecorder.KEYFRAME;
+        int frameStep = window.getInt(offset + 1);
+        int length = window.getInt(offset + 5);
+        int compressedLength = window.getInt(offset + 9);
+        if(!map(nextPosition + FRAME_HEADER_LENGTH, compressedLength)) {
+            throw new EOFException("The frame at step " + frameStep + " is incomplete.");
+        }
+        position = nextPosition;
+        nextPosition = position + FRAME_HEADER_LENGTH + compressedLength;
+        keyframe = isKeyframe;
+        step = frameStep;
+        frame++;
+        int dataOffset = (int) (position + FRAME_HEADER_LENGTH - windowStart);
+        if(keyframe) {
+            inflate(dataOffset, compressedLength, tags, length);
+        }
+        else {
+            if(changes.length < length) {
+                changes = new byte[length];
+            }
+            inflate(dataOffset, compressedLength, changes, length);
+            applyChanges();
+        }
+        return true;
+    }
+
+    /**
+     * Move to the given frame, bringing the grid up to date. Only the deltas
+     * after the last keyframe at or before it are applied, or those after
+     * the current frame if it lies between the two.
+     * @param target The number of the frame, counting from 0.
+     * @throws IOException If the file cannot be read or is damaged.
+     */
+    public void seekFrame(int target) throws IOException
+    {
+        buildIndex();
+        if(target < 0 || target >= frameCount) {
+            throw new IndexOutOfBoundsException("No frame " + target + " of " + frameCount);
+        }
+        int start = keyframes[keyframeBefore(target)];
+        if(frame < start || frame > target) {
+            // Start again from the keyframe.
+            frame = start - 1;
+            nextPosition = framePositions[start];
+        }
+        while(frame < target) {
+            next();
+        }
+    }
+
+    /**
+     * Find the first frame of the given step.
+     * @param target The step.
+     * @return The number of the frame, or -1 if no frame is of that step.
+     * @throws IOException If the file cannot be read.
+     */
+    public int findFrame(int target) throws IOException
+    {
+        buildIndex();
+        for(int i = 0; i < frameCount; i++) {
+            if(frameSteps[i] == target) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return The number of frames in the recording. A frame left
+     *         incomplete at the end of the file is not counted.
+     * @throws IOException If the file cannot be read.
+     */
+    public int getFrameCount() throws IOException
+    {
+        buildIndex();
+        return frameCount;
+    }
+
+    /**
+     * @return The number of the current frame, counting from 0,
+     *         or -1 if no frame has been read.
+     */
+    public int getFrame()
+    {
+        return frame;
+    }
+
+    /**
+     * @return The species grid of the current frame, in row-major order.
+     *         It is changed in place by the next frame read.
+     */
+    public byte[] getTags()
+    {
+        return tags;
+    }
+
+    /**
+     * @return The species in the given cell in the current frame.
+     */
+    public Species getSpeciesAt(int row, int col)
+    {
+        return Species.fromTag(tags[row * width + col]);
+    }
+
+    /**
+     * @return The step of the current frame.
+     */
+    public int getStep()
+    {
+        return step;
+    }
+
+    /**
+     * @return Whether the current frame is a keyframe.
+     */
+    public boolean isKeyframe()
+    {
+        return keyframe;
+    }
+
+    /**
+     * @return The position in the file of the current frame.
+     */
+    public long getPosition()
+    {
+        return position;
+    }
+
+    /**
+     * @return The depth of the recorded field.
+     */
+    public int getDepth()
+    {
+        return depth;
+    }
+
+    /**
+     * @return The width of the recorded field.
+     */
+    public int getWidth()
+    {
+        return width;
+    }
+
+    /**
+     * @return How many frames apart the keyframes were written.
+     */
+    public int getKeyframeInterval()
+    {
+        return keyframeInterval;
+    }
+
+    /**
+     * Close the file.
+     */
+    public void close() throws IOException
+    {
+        inflater.end();
+        channel.close();
+    }
+
+    /**
+     * Read the index at the end of the file, if it has one.
+     */
+    private void readIndex() throws IOException
+    {
+        long size = channel.size();
+        if(size < HEADER_LENGTH + 21 || !map(size - 12, 12)) {
+            return;
+        }
+        int offset = (int) (size - 12 - windowStart);
+        long at = window.getLong(offset);
+        if(window.getInt(offset + 8) != FrameRecorder.INDEX_MAGIC || at < HEADER_LENGTH ||
+           at > size - 21 || !map(at, 9) || window.get((int) (at - windowStart)) != FrameRecorder.INDEX) {
+            return;
+        }
+        offset = (int) (at - windowStart);
+        int frames = window.getInt(offset + 1);
+        int keys = window.getInt(offset + 5);
+        if(frames < 0 || keys < 0 || at + 9 + 12L * frames + 4L * keys + 12 != size) {
+            return;
+        }
+        map(at + 9, 12 * frames + 4 * keys);
+        ByteBuffer index = window.slice((int) (at + 9 - windowStart), 12 * frames + 4 * keys);
+        framePositions = new long[frames];
+        frameSteps = new int[frames];
+        keyframes = new int[keys];
+        index.asLongBuffer().get(framePositions);
+        index.position(8 * frames);
+        index.slice().asIntBuffer().get(frameSteps).get(keyframes);
+        frameCount = frames;
+        keyframeCount = keys;
+    }
+
+    /**
+     * Index the position and step of every frame and the number of every
+     * keyframe, unless it has been done, by reading just the header of each.
+     */
+    private void buildIndex() throws IOException
+    {
+        if(framePositions != null) {
+            return;
+        }
+        framePositions = new long[1024];
+        frameSteps = new int[1024];
+        keyframes = new int[64];
+        long size = channel.size();
+        long at = HEADER_LENGTH;
+        while(map(at, FRAME_HEADER_LENGTH)) {
+            int offset = (int) (at - windowStart);
+            byte kind = window.get(offset);
+            if(kind == FrameRecorder.INDEX) {
+                break;
+            }
+            boolean isKeyframe = kind == FrameRecorder.KEYFRAME;
+            long next = at + FRAME_HEADER_LENGTH + window.getInt(offset + 9);
+            if(next > size) {
+                break;
+            }
+            if(frameCount == framePositions.length) {
+                framePositions = Arrays.copyOf(framePositions, frameCount * 2);
+                frameSteps = Arrays.copyOf(frameSteps, frameCount * 2);
+            }
+            if(isKeyframe) {
+                if(keyframeCount == keyframes.length) {
+                    keyframes = Arrays.copyOf(keyframes, keyframeCount * 2);
+                }
+                keyframes[keyframeCount++] = frameCount;
+            }
+            else if(frameCount == 0) {
+                throw new IOException("The recording does not start with a keyframe.");
+            }
+            framePositions[frameCount] = at;
+            frameSteps[frameCount] = window.getInt(offset + 1);
+            frameCount++;
+            at = next;
+        }
+    }
+
+    /**
+     * @return The index in keyframes of the last keyframe at or before the given frame.
+     */
+    private int keyframeBefore(int target)
+    {
+        int found = Arrays.binarySearch(keyframes, 0, keyframeCount, target);
+        return found >= 0 ? found : -found - 2;
+    }
+
+    /**
+     * Inflate the compressed data of a frame, at the given offset in the
+     * window, into an array.
+     */
+    private void inflate(int offset, int compressedLength, byte[] into, int length) throws IOException
+    {
+        inflater.reset();
+        inflater.setInput(window.slice(offset, compressedLength));
+        try {
+            int done = 0;
+            while(done < length) {
+                int inflated = inflater.inflate(into, done, length - done);
+                if(inflated == 0 && (inflater.finished() || inflater.needsInput())) {
+                    throw new IOException("The frame at step " + step + " is too short.");
+                }
+                done += inflated;
+            }
+        }
+        catch(DataFormatException e) {
+            throw new IOException("The frame at step " + step + " is damaged.", e);
+        }
+    }
+
+    /**
+     * Apply the changes of a delta to the grid.
+     */
+    private void applyChanges()
+    {
+        cursor = 0;
+        int count = getVarint();
+        int cell = -1;
+        for(int i = 0; i < count; i++) {
+            cell += getVarint();
+            tags[cell] = changes[cursor++];
+        }
+    }
+
+    /**
+     * Read the next number of the changes, written by FrameRecorder.putVarint.
+     */
+    private int getVarint()
+    {
+        int value = 0;
+        for(int shift = 0; ; shift += 7) {
+            byte b = changes[cursor++];
+            value |= (b & 0x7F) << shift;
+            if(b >= 0) {
+                return value;
+            }
+        }
+    }
+
+    /**
+     * Make sure the window covers the given part of the file, mapping a new
+     * window starting there if it does not.
+     * @return true if it is covered; false if the file ends before it.
+     */
+    private boolean map(long start, int length) throws IOException
+    {
+        if(window != null && start >= windowStart && start + length <= windowStart + window.capacity()) {
+            return true;
+        }
+        long size = channel.size();
+        if(start + length > size) {
+            return false;
+        }
+        windowStart = start;
+        window = channel.map(FileChannel.MapMode.READ_ONLY, start,
+                             Math.min(size - start, Math.max(WINDOW_SIZE, length)));
+        return true;
+    }
+
+    /**
+     * Print the population of each species in every frame of a recording as CSV.
+     * @param args The name of the file.
+     */
+    public static void main(String[] args) throws IOException
+    {
+        if(args.length < 1) {
+            System.out.println("Usage: java FrameReader file");
+            return;
+        }
+        StringBuilder line = new StringBuilder("step");
+        for(Species species : Species.values()) {
+            if(species != Species.EMPTY) {
+                line.append(',').append(species);
+            }
+        }
+        System.out.println(line);
+        try(FrameReader reader = new FrameReader(Paths.get(args[0]))) {
+            int[] counts = new int[Species.values().length];
+            while(reader.next()) {
+                Arrays.fill(counts, 0);
+                for(byte tag : reader.getTags()) {
+                    counts[tag]++;
+                }
+                line.setLength(0);
+                line.append(reader.getStep());
+                for(Species species : Species.values()) {
+                    if(species != Species.EMPTY) {
+                        line.append(',').append(counts[species.getTag()]);
+                    }
+                }
+                System.out.println(line);
+            }
+        }
+    }
+}
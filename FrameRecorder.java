@@ -0,0 +1,398 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.Deflater;
+
+/**
+ * Records a run as a sequence of frames of the field's species grid, which
+ * a FrameReader can play back offline without running the simulation again.
+ *
+ * After each step the simulation thread copies the field's species tags,
+ * a tile row at a time, into a spare grid and hands it to a background
+ * thread; it only waits if the writer falls several frames behind. The
+ * writer compares each grid with the one before, and writes either a
+ * keyframe holding the whole grid or a delta holding the cells that
+ * changed, compressed with a Deflater, through a buffered file channel.
+ * A keyframe is written every so many frames, and whenever the steps do
+ * not follow on, as after a reset.
+ *
+ * The file starts with a header giving the size of the field and the
+ * keyframe interval. Each frame is its kind, its step, the length of its
+ * data and of the data compressed, then the compressed data. A keyframe's
+ * data is the grid in row-major order. A delta's data is the number of
+ * cells changed, then for each the distance from the last one changed and
+ * its new tag; the numbers are variable-length integers.
+ *
+ * Once the last frame is written, close ends the file with an index for
+ * seeking: its kind, the number of frames and of keyframes, the position
+ * and step of each frame, the number of each keyframe, and last the
+ * position of the index and a mark that it is there. A file cut short
+ * has no index, and a FrameReader finds its frames from their headers.
+ *
+ * @author Anirudh George and Ahmet Bayazitoglu
+ * @version 2022.03.02
+ */
+public class FrameRecorder implements SimulationObserver, AutoCloseable
+{
+    // The first int of a frame file, and the version of its layout.
+    static final int MAGIC = 0x46524D53;
+    static final int VERSION = 2;
+    // The kinds of frame, and the kind of the index at the end.
+    static final byte KEYFRAME = 0;
+    static final byte DELTA = 1;
+    static final byte INDEX = 2;
+    // The last int of a file that ends with an index.
+    static final int INDEX_MAGIC = 0x46524958;
+    // The keyframe interval of recordings made from the command line.
+    static final int KEYFRAME_INTERVAL = 50;
+    // The number of grids shared by the simulation and the writer.
+    private static final int GRIDS = 4;
+    // The size of the buffer between the writer and the file.
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    // The size of the field, and how many frames apart keyframes are.
+    private int depth, width, keyframeInterval;
+    // The grids ready to be filled by the simulation.
+    private BlockingQueue<byte[]> spare = new ArrayBlockingQueue<>(GRIDS);
+    // The frames waiting to be written. A frame with no grid marks the end.
+    private BlockingQueue<Frame> frames = new ArrayBlockingQueue<>(GRIDS + 1);
+    // The background thread, and the file it writes.
+    private Thread writer;
+    private FileChannel channel;
+    // The first error the writer met, if any.
+    private volatile IOException failure;
+    // The changes of the last delta encoded, used only by the writer.
+    private byte[] changes = new byte[1024];
+    // The index kept by the writer: the number of frames and of keyframes
+    // written, the position and step of each frame, and the number of
+    // each keyframe.
+    private int frameCount, keyframeCount;
+    private long[] framePositions = new long[1024];
+    private int[] frameSteps = new int[1024];
+    private int[] keyframes = new int[64];
+
+    /**
+     * Create a recorder of the given field writing to the given file, which is replaced.
+     * @param path The file to write.
+     * @param field The field to be recorded.
+     * @param keyframeInterval How many frames apart to write keyframes.
+     *                         Must be greater than zero.
+     * @throws IOException If the file cannot be created.
+     */
+    public FrameRecorder(Path path, Field field, int keyframeInterval) throws IOException
+    {
+        if(keyframeInterval <= 0) {
+            throw new IllegalArgumentException("Keyframe interval must be positive: " + keyframeInterval);
+        }
+        depth = field.getDepth();
+        width = field.getWidth();
+        this.keyframeInterval = keyframeInterval;
+        for(int i = 0; i < GRIDS; i++) {
+            spare.add(new byte[depth * width]);
+        }
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                   StandardOpenOption.TRUNCATE_EXISTING);
+        writer = new Thread(this::write, "FrameRecorder");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Record a frame of the field after a step.
+     * @param step The number of the step, or zero after a reset.
+     * @param field The field of the simulation.
+     */
+    public void stepped(int step, Field field)
+    {
+        if(failure != null) {
+            // Nothing more can be written.
+            return;
+        }
+        try {
+            byte[] tags = spare.take();
+            field.copyTags(tags);
+            frames.put(new Frame(step, tags));
+        }
+        catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while recording a frame.", e);
+        }
+    }
+
+    /**
+     * Write the remaining frames and the index, and close the file.
+     * @throws IOException If the writer could not write the file.
+     */
+    public void close() throws IOException
+    {
+        try {
+            frames.put(new Frame(0, null));
+            writer.join();
+        }
+        catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while closing the frame record.", e);
+        }
+        finally {
+            channel.close();
+        }
+        if(failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Encode and write the frames in the queue until the end is reached.
+     * This is run by the writer thread.
+     */
+    private void write()
+    {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        // The data of a frame compressed.
+        byte[] compressed = new byte[1024];
+        // The grid of the last frame, its step, and the frames since the last keyframe.
+        byte[] previous = null;
+        int previousStep = 0;
+        int sinceKeyframe = 0;
+        // Where in the file the next frame goes.
+        long position = FrameReader.HEADER_LENGTH;
+        try {
+            buffer.putInt(MAGIC);
+            buffer.putInt(VERSION);
+            buffer.putInt(depth);
+            buffer.putInt(width);
+            buffer.putInt(keyframeInterval);
+            Frame frame;
+            while((frame = frames.take()).tags != null) {
+                byte kind;
+                byte[] data;
+                int length;
+                if(previous == null || frame.step != previousStep + 1 || sinceKeyframe + 1 >= keyframeInterval) {
+                    kind = KEYFRAME;
+                    data = frame.tags;
+                    length = data.length;
+                    sinceKeyframe = 0;
+                }
+                else {
+                    kind = DELTA;
+                    length = encodeChanges(previous, frame.tags);
+                    data = changes;
+                    sinceKeyframe++;
+                }
+                deflater.reset();
+                deflater.setInput(data, 0, length);
+                deflater.finish();
+                int compressedLength = 0;
+                while(!deflater.finished()) {
+                    if(compressedLength == compressed.length) {
+                        compressed = Arrays.copyOf(compressed, compressed.length * 2);
+                    }
+                    compressedLength += deflater.deflate(compressed, compressedLength,
+                                                         compressed.length - compressedLength);
+                }
+                addToIndex(position, frame.step, kind == KEYFRAME);
+                position += FrameReader.FRAME_HEADER_LENGTH + compressedLength;
+                if(buffer.remaining() < FrameReader.FRAME_HEADER_LENGTH) {
+                    flush(buffer);
+                }
+                buffer.put(kind);
+                buffer.putInt(frame.step);
+                buffer.putInt(length);
+                buffer.putInt(compressedLength);
+                for(int offset = 0; offset < compressedLength; ) {
+                    if(!buffer.hasRemaining()) {
+                        flush(buffer);
+                    }
+                    int part = Math.min(buffer.remaining(), compressedLength - offset);
+                    buffer.put(compressed, offset, part);
+                    offset += part;
+                }
+                // The grid before this one can be filled again.
+                if(previous != null) {
+                    spare.put(previous);
+                }
+                previous = frame.tags;
+                previousStep = frame.step;
+            }
+            writeIndex(buffer, position);
+            flush(buffer);
+        }
+        catch(IOException e) {
+            failure = e;
+            drain();
+        }
+        catch(InterruptedException e) {
+            failure = new IOException("The frame writer was interrupted.", e);
+            drain();
+        }
+        finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Add a frame to the index. This is done by the writer thread.
+     */
+    private void addToIndex(long position, int step, boolean keyframe)
+    {
+        if(frameCount == framePositions.length) {
+            framePositions = Arrays.copyOf(framePositions, frameCount * 2);
+            frameSteps = Arrays.copyOf(frameSteps, frameCount * 2);
+        }
+        if(keyframe) {
+            if(keyframeCount == keyframes.length) {
+                keyframes = Arrays.copyOf(keyframes, keyframeCount * 2);
+            }
+            keyframes[keyframeCount++] = frameCount;
+        }
+        framePositions[frameCount] = position;
+        frameSteps[frameCount] = step;
+        frameCount++;
+    }
+
+    /**
+     * Write the index after the last frame, which is at the given position.
+     */
+    private void writeIndex(ByteBuffer buffer, long position) throws IOException
+    {
+        if(buffer.remaining() < 9) {
+            flush(buffer);
+        }
+        buffer.put(INDEX);
+        buffer.putInt(frameCount);
+        buffer.putInt(keyframeCount);
+        for(int i = 0; i < frameCount; i++) {
+            if(buffer.remaining() < 8) {
+                flush(buffer);
+            }
+            buffer.putLong(framePositions[i]);
+        }
+        for(int i = 0; i < frameCount; i++) {
+            if(buffer.remaining() < 4) {
+                flush(buffer);
+            }
+            buffer.putInt(frameSteps[i]);
+        }
+        for(int i = 0; i < keyframeCount; i++) {
+            if(buffer.remaining() < 4) {
+                flush(buffer);
+            }
+            buffer.putInt(keyframes[i]);
+        }
+        if(buffer.remaining() < 12) {
+            flush(buffer);
+        }
+        buffer.putLong(position);
+        buffer.putInt(INDEX_MAGIC);
+    }
+
+    /**
+     * Encode the cells that differ between two grids into the changes,
+     * skipping runs of equal cells with Arrays.mismatch.
+     * @return The length of the changes.
+     */
+    private int encodeChanges(byte[] before, byte[] after)
+    {
+        int count = 0;
+        int length = 5;
+        int last = -1;
+        int cell = Arrays.mismatch(before, after);
+        while(cell >= 0) {
+            if(changes.length < length + 6) {
+                changes = Arrays.copyOf(changes, changes.length * 2);
+            }
+            length = putVarint(changes, length, cell - last);
+            changes[length++] = after[cell];
+            count++;
+            last = cell;
+            if(cell + 1 == after.length) {
+                break;
+            }
+            int next = Arrays.mismatch(before, cell + 1, before.length, after, cell + 1, after.length);
+            cell = next < 0 ? -1 : cell + 1 + next;
+        }
+        // The count goes first, in the five bytes left for it.
+        int start = 5 - varintLength(count);
+        putVarint(changes, start, count);
+        System.arraycopy(changes, start, changes, 0, length - start);
+        return length - start;
+    }
+
+    /**
+     * Write a number as seven bits a byte, low bits first, with the top bit
+     * of each byte set if more follow.
+     * @return The offset after the number.
+     */
+    static int putVarint(byte[] bytes, int offset, int value)
+    {
+        while((value & ~0x7F) != 0) {
+            bytes[offset++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        bytes[offset++] = (byte) value;
+        return offset;
+    }
+
+    /**
+     * @return The number of bytes putVarint writes for the number.
+     */
+    private static int varintLength(int value)
+    {
+        int length = 1;
+        while((value & ~0x7F) != 0) {
+            value >>>= 7;
+            length++;
+        }
+        return length;
+    }
+
+    /**
+     * Write out what is in the buffer.
+     */
+    private void flush(ByteBuffer buffer) throws IOException
+    {
+        buffer.flip();
+        while(buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Hand the grids in the queue back until the end is reached,
+     * so the simulation is not held up once nothing can be written.
+     */
+    private void drain()
+    {
+        try {
+            Frame frame;
+            while((frame = frames.take()).tags != null) {
+                spare.put(frame.tags);
+            }
+        }
+        catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * The species grid of the field after a step.
+     */
+    private static class Frame
+    {
+        private int step;
+        private byte[] tags;
+
+        Frame(int step, byte[] tags)
+        {
+            this.step = step;
+            this.tags = tags;
+        }
+    }
+}
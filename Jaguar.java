@@ -1,5 +1,5 @@
+import java.io.IOException;
 import java.util.List;
-import java.util.Iterator;
 import java.util.Random;
 
 /**
@@ -26,14 +26,20 @@ public class Jaguar extends Predator
     private static final int TORTOISE_FOOD_VALUE = 8;
     // A shared random number generator to control breeding.
     private static final Random rand = Randomizer.getRandom();
+    // The species a jaguar eats.
+    private static final int DIET = Species.TORTOISE.getMask();
     // The maximum amount of food a jaguar can have.
     private static final int MAX_FOOD_LEVEL = 160;
-    // The jaguar's age.
-    private int age;
+    // The characteristics of a jaguar, for the struct-of-arrays simulation
+    // and for scheduling its sleep.
+    static final AnimalTraits TRAITS =
+        new AnimalTraits(BREEDING_AGE, MAX_AGE, BREEDING_PROBABILITY, MAX_LITTER_SIZE,
+                         TORTOISE_FOOD_VALUE,
+                         TORTOISE_FOOD_VALUE)
+            .eats(Species.TORTOISE, TORTOISE_FOOD_VALUE)
+            .sleepsIn(Clock.Phase.MORNING);
     // The jaguar's food level which is increased by eating tortoises.  
     private int foodLevel;
-     //The weather
-    private Weather weather = new Weather();
     /**
      * Create a jaguar. A jaguar can be created as a new born (age zero
      * and not hungry) or with a random age and food level.
@@ -46,12 +52,43 @@ public class Jaguar extends Predator
     protected Jaguar(boolean randomAge, Field field, Location location,Gender gender)
     {
         super(field, location, gender);
+        init(randomAge);
+        updateMatingIndex();
+    }
+    
+    /**
+     * Create a jaguar, reusing a dead one from the field's pool if there is one.
+     * 
+     * @param randomAge If true, the jaguar will have random age and hunger level.
+     * @param field The field currently occupied.
+     * @param location The location within the field.
+     * @param gender The gender of the jaguar
+     * @return The jaguar.
+     */
+    public static Jaguar create(boolean randomAge, Field field, Location location, Gender gender)
+    {
+        Jaguar jaguar = (Jaguar) field.getPool().obtain(Species.JAGUAR);
+        if(jaguar == null) {
+            return new Jaguar(randomAge, field, location, gender);
+        }
+        jaguar.revive(field, location, gender);
+        jaguar.init(randomAge);
+        jaguar.updateMatingIndex();
+        return jaguar;
+    }
+    
+    /**
+     * Set the age and food level of a new jaguar.
+     * @param randomAge If true, the jaguar will have random age and hunger level.
+     */
+    private void init(boolean randomAge)
+    {
         if(randomAge) {
-            age = rand.nextInt(MAX_AGE);
+            setAge(rand.nextInt(MAX_AGE));
             foodLevel = rand.nextInt(TORTOISE_FOOD_VALUE);
         }
         else {
-            age = 0;
+            setAge(0);
             foodLevel = TORTOISE_FOOD_VALUE;
         }
     }
@@ -65,12 +102,8 @@ public class Jaguar extends Predator
      */
     public void act(List<Organism> newJaguars)
     {
-        incrementAge();
         incrementHunger();
-        if(weather.dayCounter == 1 ){
-            sleep();
-        }
-        else if(isAlive()) {
+        if(isAlive()) {
             meet(newJaguars);
             // Move towards a source of food if found.
             Location newLocation = findFood();
@@ -90,16 +123,71 @@ public class Jaguar extends Predator
     }
 
     /**
-     * Increase the age. This could result in the jaguar's death.
+     * Write the jaguar's own state to a checkpoint.
+     * @param out The checkpoint being written.
      */
-    private void incrementAge()
+    protected void writeState(Checkpoint.Output out) throws IOException
     {
-        age++;
-        if(age > MAX_AGE) {
-            setDead();
+        super.writeState(out);
+        out.putInt(foodLevel);
+    }
+    
+    /**
+     * Read the jaguar's own state from a checkpoint.
+     * @param in The checkpoint being read.
+     */
+    protected void readState(Checkpoint.Input in) throws IOException
+    {
+        super.readState(in);
+        foodLevel = in.getInt();
+    }
+
+    /**
+     * Sleep through a step: the jaguar only grows hungrier,
+     * which may kill it.
+     */
+    protected void rest()
+    {
+        incrementHunger();
+    }
+    
+    /**
+     * Return the characteristics of the jaguar.
+     * @return The traits of the species.
+     */
+    protected AnimalTraits getTraits()
+    {
+        return TRAITS;
+    }
+
+    /**
+     * Plan what the jaguar does in a step of the two-phase step mode.
+     * This is what act does, but the jaguar only records what it means to do.
+     * @param intents The intents of the organisms for this step.
+     */
+    protected void plan(StepIntents intents)
+    {
+        foodLevel--;
+        if(foodLevel <= 0) {
+            intents.die(this);
+        }
+        else if(!sleepsIn(field.getClock().getPhase())) {
+            meet(intents);
+            forage(intents, DIET);
         }
     }
     
+    /**
+     * Create a newborn jaguar at the given location.
+     * @param field The field the cub is born into.
+     * @param location Where the cub is born.
+     * @return The cub.
+     */
+    protected Organism offspring(Field field, Location location)
+    {
+        return Jaguar.create(false, field, location, randomGender());
+    }
+
     /**
      * Make this jaguar more hungry. This could result in the jaguar's death.
      */
@@ -113,27 +201,27 @@ public class Jaguar extends Predator
     
     /**
      * Look for tortoises adjacent to the current location.
-     * Only the first live tortoise is eaten.
+     * The nearest live tortoise is eaten, picked at random if several are equally near.
      * @return Where food was found, or null if it wasn't.
      */
     protected Location findFood()
     {
         Field field = getField();
-        List<Location> adjacent = field.adjacentNLocations(getLocation(), 2);
-        Iterator<Location> it = adjacent.iterator();
-        while(it.hasNext() ) {
-            Location where = it.next();
-            Object animal = field.getObjectAt(where);
-            if(animal instanceof Tortoise) {
-                Tortoise tortoise = (Tortoise) animal;
-                if(tortoise.isAlive()) { 
-                    tortoise.setDead();
-                    foodLevel = TORTOISE_FOOD_VALUE;
-                    return where;
-                }
-            }
+        Location where = field.nearestOccupant(getLocation(), 3, DIET);
+        if(where != null) {
+            eat((Organism) field.getObjectAt(where));
         }
-        return null;
+        return where;
+    }
+
+    /**
+     * Eat the given tortoise, which dies.
+     * @param food The tortoise being eaten.
+     */
+    protected void eat(Organism food)
+    {
+        foodLevel = TORTOISE_FOOD_VALUE;
+        food.setDead();
     }
     
     /**
@@ -144,14 +232,14 @@ public class Jaguar extends Predator
     protected void giveBirth(List<Organism> newJaguars)
     {
         // New jaguars are born into adjacent locations.
-        // Get a list of adjacent free locations.
+        // Walk the adjacent free locations.
         Field field = getField();
-        List<Location> free = field.getFreeAdjacentLocations(getLocation());
         int births = breed();
-        for(int b = 0; b < births && free.size() > 0; b++) {
-            Location loc = free.remove(0);
-            Jaguar cub = new Jaguar(false, field, getLocation(), randomGender());
-            newJaguars.add(cub);
+        try(Field.Neighbourhood free = field.neighbours(getLocation(), 1)) {
+            for(int b = 0; b < births && free.nextFree(); b++) {
+                Jaguar cub = Jaguar.create(false, field, free.getLocation(), randomGender());
+                newJaguars.add(cub);
+            }
         }
     }
     
@@ -164,14 +252,14 @@ public class Jaguar extends Predator
     protected void giveBirth(List<Organism> newJaguars, int steps)
     {
         // New jaguars are born into adjacent locations.
-        // Get a list of further apart free locations.
+        // Walk the further apart free locations.
         Field field = getField();
-        List<Location> free = field.getFreeNAdjacentLocations(getLocation(), steps);
         int births = breed();
-        for(int b = 0; b < births && free.size() > 0; b++) {
-            Location loc = free.remove(0);
-            Jaguar cub = new Jaguar(false, field, getLocation(), randomGender());
-            newJaguars.add(cub);
+        try(Field.Neighbourhood free = field.neighbours(getLocation(), steps + 1)) {
+            for(int b = 0; b < births && free.nextFree(); b++) {
+                Jaguar cub = Jaguar.create(false, field, free.getLocation(), randomGender());
+                newJaguars.add(cub);
+            }
         }
     }
     
@@ -180,7 +268,7 @@ public class Jaguar extends Predator
      * if it can breed.
      * @return The number of births (may be zero).
      */
-    private int breed()
+    protected int breed()
     {
         int births = 0;
         if(rand.nextDouble() <= BREEDING_PROBABILITY) {
@@ -195,6 +283,6 @@ public class Jaguar extends Predator
      */
     protected boolean canBreed()
     {
-        return age >= BREEDING_AGE;
+        return getAge() >= BREEDING_AGE;
     }
 }
\ No newline at end of file
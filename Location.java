@@ -1,5 +1,8 @@
 /**
  * Represent a location in a rectangular grid.
+ * The field reuses Location objects where it can, but two locations
+ * of the same position are not always the same object; compare them
+ * with equals.
  * 
  * @author David J. Barnes and Michael Kölling
  * @version 2016.02.29
@@ -26,7 +29,10 @@ public class Location
      */
     public boolean equals(Object obj)
     {
-        if(obj instanceof Location) {
+        if(obj == this) {
+            return true;
+        }
+        else if(obj instanceof Location) {
             Location other = (Location) obj;
             return row == other.getRow() && col == other.getCol();
         }
@@ -45,14 +51,14 @@ public class Location
     }
     
     /**
-     * Use the top 16 bits for the row value and the bottom for
-     * the column. Except for very big grids, this should give a
-     * unique hash code for each (row, col) pair.
+     * Mix the row and column together, so that locations in wide
+     * grids (more than 65536 columns) do not collide the way they
+     * would if the row were simply shifted into the top 16 bits.
      * @return A hashcode for the location.
      */
     public int hashCode()
     {
-        return (row << 16) + col;
+        return Long.hashCode(row * 0x9E3779B97F4A7C15L + col);
     }
     
     /**
@@ -0,0 +1,224 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * A coarse spatial index of the animals in a field that are old enough
+ * to breed. The field is divided into square buckets, and each bucket
+ * keeps a separate list of eligible animals for every species and gender,
+ * so an animal looking for a mate only has to look at real candidates.
+ * 
+ * Animals keep their own entry up to date as they move, die and come
+ * of breeding age.
+ *
+ * @author Anirudh George and Ahmet Bayazitoglu
+ * @version 2022.03.02
+ */
+public class MatingIndex
+{
+    // The side of each bucket, in locations.
+    private static final int BUCKET_SIZE = 16;
+    // How many species and genders there are.
+    private static final int SPECIES_COUNT = Species.values().length;
+    private static final int GENDER_COUNT = Animal.Gender.values().length;
+    // How many lists each bucket has.
+    private static final int LISTS_PER_BUCKET = SPECIES_COUNT * GENDER_COUNT;
+
+    // The number of rows and columns of buckets.
+    private int bucketRows, bucketCols;
+    // The eligible animals, indexed by bucket and then by species and gender.
+    // The lists for a bucket are only made once an animal is filed there.
+    private ArrayList<Animal>[][] buckets;
+
+    /**
+     * Create an empty index for a field of the given size.
+     * @param depth The depth of the field.
+     * @param width The width of the field.
+     */
+    public MatingIndex(int depth, int width)
+    {
+        bucketRows = (depth + BUCKET_SIZE - 1) / BUCKET_SIZE;
+        bucketCols = (width + BUCKET_SIZE - 1) / BUCKET_SIZE;
+        buckets = newBuckets(bucketRows * bucketCols);
+    }
+
+    /**
+     * Remove every animal from the index.
+     */
+    public void clear()
+    {
+        Arrays.fill(buckets, null);
+    }
+
+    /**
+     * File the animal under its current location, species and gender if
+     * it is alive and able to breed, or remove it from the index if not.
+     * @param animal The animal whose entry is to be brought up to date.
+     */
+    public void update(Animal animal)
+    {
+        Location location = animal.getLocation();
+        int key = -1;
+        if(animal.isAlive() && location != null && animal.canBreed()) {
+            key = keyFor(location.getRow() / BUCKET_SIZE, location.getCol() / BUCKET_SIZE,
+                         animal.getSpecies(), animal.getGender());
+        }
+        if(animal.mating && animal.matingKey == key) {
+            return;
+        }
+        remove(animal);
+        if(key >= 0) {
+            ArrayList<Animal> bucket = listFor(key);
+            if(bucket == null) {
+                if(buckets[key / LISTS_PER_BUCKET] == null) {
+                    buckets[key / LISTS_PER_BUCKET] = newLists(LISTS_PER_BUCKET);
+                }
+                bucket = new ArrayList<>();
+                buckets[key / LISTS_PER_BUCKET][key % LISTS_PER_BUCKET] = bucket;
+            }
+            animal.mating = true;
+            animal.matingKey = key;
+            animal.matingSlot = bucket.size();
+            bucket.add(animal);
+        }
+    }
+
+    /**
+     * Remove the animal from the index, if it is there.
+     * @param animal The animal to remove.
+     */
+    public void remove(Animal animal)
+    {
+        if(animal.mating) {
+            ArrayList<Animal> bucket = listFor(animal.matingKey);
+            // Move the last animal in the bucket into the gap.
+            Animal last = bucket.remove(bucket.size() - 1);
+            if(last != animal) {
+                bucket.set(animal.matingSlot, last);
+                last.matingSlot = animal.matingSlot;
+            }
+            animal.mating = false;
+        }
+    }
+
+    /**
+     * Write the animals in the index to a checkpoint, in the order
+     * they are kept in their lists.
+     * @param out The checkpoint being written.
+     */
+    void write(Checkpoint.Output out) throws IOException
+    {
+        int count = 0;
+        for(ArrayList<Animal>[] lists : buckets) {
+            if(lists != null) {
+                for(ArrayList<Animal> list : lists) {
+                    if(list != null) {
+                        count += list.size();
+                    }
+                }
+            }
+        }
+        out.putInt(count);
+        for(ArrayList<Animal>[] lists : buckets) {
+            if(lists != null) {
+                for(ArrayList<Animal> list : lists) {
+                    if(list != null) {
+                        for(Animal animal : list) {
+                            out.putOrganism(animal);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Read the animals in the index from a checkpoint, filing them in
+     * the order they were written so each list is as it was.
+     * The animals must not be filed already.
+     * @param in The checkpoint being read.
+     */
+    void read(Checkpoint.Input in) throws IOException
+    {
+        clear();
+        int count = in.getInt();
+        for(int i = 0; i < count; i++) {
+            update((Animal) in.getOrganism());
+        }
+    }
+
+    /**
+     * Pass each eligible animal of the same species and the opposite gender
+     * within the given radius of an animal to the action.
+     * @param animal The animal looking for a mate.
+     * @param radius How many rows and columns away to look.
+     * @param action What to do with each partner found.
+     */
+    public void forEachPartner(Animal animal, int radius, Consumer<Animal> action)
+    {
+        Location location = animal.getLocation();
+        int row = location.getRow();
+        int col = location.getCol();
+        Animal.Gender[] genders = Animal.Gender.values();
+        Animal.Gender partnerGender = genders[(animal.getGender().ordinal() + 1) % GENDER_COUNT];
+        int lastBucketRow = Math.min((row + radius) / BUCKET_SIZE, bucketRows - 1);
+        int lastBucketCol = Math.min((col + radius) / BUCKET_SIZE, bucketCols - 1);
+        for(int br = Math.max(row - radius, 0) / BUCKET_SIZE; br <= lastBucketRow; br++) {
+            for(int bc = Math.max(col - radius, 0) / BUCKET_SIZE; bc <= lastBucketCol; bc++) {
+                ArrayList<Animal> bucket = listFor(keyFor(br, bc, animal.getSpecies(), partnerGender));
+                if(bucket != null) {
+                    for(int i = 0; i < bucket.size(); i++) {
+                        Animal partner = bucket.get(i);
+                        Location where = partner.getLocation();
+                        if(partner != animal &&
+                           Math.abs(where.getRow() - row) <= radius &&
+                           Math.abs(where.getCol() - col) <= radius) {
+                            action.accept(partner);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Return the key of the list for the given bucket, species and gender.
+     */
+    private int keyFor(int bucketRow, int bucketCol, Species species, Animal.Gender gender)
+    {
+        int bucket = bucketRow * bucketCols + bucketCol;
+        return bucket * LISTS_PER_BUCKET + species.ordinal() * GENDER_COUNT + gender.ordinal();
+    }
+
+    /**
+     * @return An array of the given number of buckets, each without lists.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static ArrayList<Animal>[][] newBuckets(int length)
+    {
+        return new ArrayList[length][];
+    }
+
+    /**
+     * @return An array of the given number of lists, none of them made.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static ArrayList<Animal>[] newLists(int length)
+    {
+        return new ArrayList[length];
+    }
+
+    /**
+     * Return the list with the given key.
+     * @return The list, or null if it has not been made yet.
+     */
+    private ArrayList<Animal> listFor(int key)
+    {
+        ArrayList<Animal>[] lists = buckets[key / LISTS_PER_BUCKET];
+        if(lists == null) {
+            return null;
+        }
+        return lists[key % LISTS_PER_BUCKET];
+    }
+}
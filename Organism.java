@@ -1,3 +1,4 @@
+import java.io.IOException;
 import java.util.List;
 /**
  * The general characteristics of an organism in this simulation.
@@ -13,6 +14,13 @@ public abstract class Organism
     protected Location location;
     //Whether the organism is alive or not
     protected boolean alive;
+    //The species of the organism
+    private final Species species;
+    //The weather, which is shared by all organisms
+    protected static final Weather weather = new Weather();
+    //The step at which the organism is next due in the field's age calendar.
+    //This is maintained by the AgeCalendar.
+    int dueStep;
     
     /**
      * Create a new organism at location in field.
@@ -22,15 +30,91 @@ public abstract class Organism
      */
     public Organism(Field field, Location location) {
         alive = true;
+        species = Species.of(getClass());
         this.field = field;
         setLocation(location);
     }
     
+    /**
+     * Bring a dead organism back to life at location in field, so that
+     * it can be reused as a newborn rather than allocating a new one.
+     * 
+     * @param field The field to be occupied.
+     * @param location The location within the field.
+     */
+    protected void revive(Field field, Location location)
+    {
+        alive = true;
+        this.field = field;
+        this.location = null;
+        setLocation(location);
+    }
+    
     /**
      * Abstract act method overriden in the sublasses
      */
     abstract protected void act(List<Organism> newOrganisms);
 
+    /**
+     * Return whether the organism sleeps through the given phase of the day.
+     * An organism that sleeps does not act, but rests instead.
+     * @param phase The phase of the day.
+     * @return true if the organism sleeps through the phase.
+     */
+    protected boolean sleepsIn(Clock.Phase phase)
+    {
+        return false;
+    }
+    
+    /**
+     * Sleep through a step. Organisms that never sleep do nothing here.
+     */
+    protected void rest()
+    {
+    }
+
+    /**
+     * Plan what the organism does in a step of the two-phase step mode.
+     * The field is not changed; what the organism means to do is recorded
+     * in the given intents, to be settled once every organism has planned.
+     * @param intents The intents of the organisms for this step.
+     */
+    abstract protected void plan(StepIntents intents);
+
+    /**
+     * Change with age at the step the organism was scheduled for in the
+     * field's age calendar: die of old age, or reach a new stage of life.
+     */
+    abstract protected void ageDue();
+
+    /**
+     * Create a new organism of the same species at the given location.
+     * @param field The field the new organism is in.
+     * @param location Where the new organism is.
+     * @return The new organism.
+     */
+    abstract protected Organism offspring(Field field, Location location);
+
+    /**
+     * Write the organism's own state to a checkpoint. Its species and
+     * location are written for it.
+     * @param out The checkpoint being written.
+     */
+    protected void writeState(Checkpoint.Output out) throws IOException
+    {
+        out.putInt(dueStep);
+    }
+    
+    /**
+     * Read the organism's own state from a checkpoint, replacing that of
+     * the newborn it was created as.
+     * @param in The checkpoint being read.
+     */
+    protected void readState(Checkpoint.Input in) throws IOException
+    {
+        dueStep = in.getInt();
+    }
+
     /**
      * Return the organism's location.
      * @return The organism's location.
@@ -53,6 +137,30 @@ public abstract class Organism
         field.place(this, newLocation);
     }
     
+    /**
+     * Return the organism's species.
+     * @return The organism's species.
+     */
+    protected Species getSpecies()
+    {
+        return species;
+    }
+    
+    /**
+     * Return the key of the organism's random numbers for a step. It is made
+     * from where the organism is and its species, so no two organisms acting
+     * in the same step share a key, whatever order they act in.
+     * @return The organism's random key.
+     */
+    protected long getRandomKey()
+    {
+        if(location == null) {
+            return -1;
+        }
+        long cell = ((long) location.getRow() << 32) | location.getCol();
+        return cell * Species.values().length + species.ordinal();
+    }
+    
     /**
      * Return the organism's field.
      * @return The organism's field.
@@ -73,11 +181,13 @@ public abstract class Organism
     
     /**
      * Indicate that the organism is no longer alive.
-     * It is removed from the field.
+     * It is removed from the field and its age calendar.
      */
     protected void setDead()
     {
         alive = false;
+        // Its entry in the age calendar no longer counts.
+        dueStep = -1;
         if(location != null) {
             field.clear(location);
             location = null;
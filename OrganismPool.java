@@ -0,0 +1,121 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A pool of dead organisms kept for reuse, one list for each species.
+ * Organisms are handed back once they are dead and gone from the
+ * simulation's list of organisms, and are brought back to life as newborns
+ * of their species, so a simulation in a steady state hardly allocates.
+ *
+ * The pool counts the organisms it had to allocate and those it reused,
+ * to show how well it works. It may be used from several threads at once.
+ *
+ * @author Anirudh George and Ahmet Bayazitoglu
+ * @version 2022.03.02
+ */
+public class OrganismPool
+{
+    // The dead organisms of each species, indexed by species.
+    private List<List<Organism>> free;
+    // The number of organisms of each species that were allocated, and reused.
+    private long[] allocated, reused;
+
+    /**
+     * Create an empty pool.
+     */
+    public OrganismPool()
+    {
+        int species = Species.values().length;
+        free = new ArrayList<>(species);
+        for(int i = 0; i < species; i++) {
+            free.add(new ArrayList<>());
+        }
+        allocated = new long[species];
+        reused = new long[species];
+    }
+
+    /**
+     * Take a dead organism of the given species to bring back to life.
+     * If there is none, the caller must allocate a new one, and this is counted.
+     * @param species The species of the organism wanted.
+     * @return A dead organism of the species, or null if there is none.
+     */
+    public synchronized Organism obtain(Species species)
+    {
+        List<Organism> organisms = free.get(species.ordinal());
+        if(organisms.isEmpty()) {
+            allocated[species.ordinal()]++;
+            return null;
+        }
+        reused[species.ordinal()]++;
+        return organisms.remove(organisms.size() - 1);
+    }
+
+    /**
+     * Hand back a dead organism for reuse. Nothing else may still refer to it.
+     * @param organism The dead organism.
+     */
+    public synchronized void release(Organism organism)
+    {
+        if(organism.isAlive()) {
+            throw new IllegalArgumentException("A live organism cannot be reused.");
+        }
+        free.get(organism.getSpecies().ordinal()).add(organism);
+    }
+
+    /**
+     * @return The number of organisms of the given species that were allocated.
+     */
+    public synchronized long getAllocated(Species species)
+    {
+        return allocated[species.ordinal()];
+    }
+
+    /**
+     * @return The number of organisms of the given species that were reused.
+     */
+    public synchronized long getReused(Species species)
+    {
+        return reused[species.ordinal()];
+    }
+
+    /**
+     * @return The number of organisms of every species that were allocated.
+     */
+    public synchronized long getAllocated()
+    {
+        long total = 0;
+        for(long count : allocated) {
+            total += count;
+        }
+        return total;
+    }
+
+    /**
+     * @return The number of organisms of every species that were reused.
+     */
+    public synchronized long getReused()
+    {
+        long total = 0;
+        for(long count : reused) {
+            total += count;
+        }
+        return total;
+    }
+
+    /**
+     * @return The allocations and reuses of each species.
+     */
+    public synchronized String toString()
+    {
+        StringBuilder buffer = new StringBuilder("Allocated/reused:");
+        for(Species species : Species.values()) {
+            if(species != Species.EMPTY) {
+                buffer.append(' ').append(species).append(' ')
+                      .append(allocated[species.ordinal()]).append('/')
+                      .append(reused[species.ordinal()]);
+            }
+        }
+        return buffer.toString();
+    }
+}
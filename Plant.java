@@ -11,22 +11,21 @@ import java.util.List;
 public class Plant extends Organism
 {
     //The maximum age of the plant
-    private static final int MAX_AGE = 10;
+    static final int MAX_AGE = 10;
     //The rate at which a plant grows in height every step.
-    private static final double GROWTH_RATE = 1.25;
+    static final double GROWTH_RATE = 1.25;
     //A shared random number generator to control the growths of plants.
     private static final Random rand = Randomizer.getRandom();
     //The maximum height of a plant.
-    private static final int MAX_HEIGHT = 250;
+    static final int MAX_HEIGHT = 250;
     //The likelihood of a plant growing in an empty space.
-    private static final double PLANT_GROWTH_PROBABILITY = 0.06;
+    static final double PLANT_GROWTH_PROBABILITY = 0.06;
+    
+    //The age at which a plant dies, of old age or for having grown too tall.
+    //A plant is one high when it is born, and grows while it is not too tall,
+    //so its height follows from its age.
+    private static final int LIFESPAN = lifespan();
     
-    //The plant's age.
-    private int age;
-    //The initial height of the plant.
-    private double height = 1;
-    //The weather
-    private Weather weather = new Weather();
     /**
      * Create a new plant at location in field.
      * @param field The field currently occupied.
@@ -34,51 +33,101 @@ public class Plant extends Organism
      */
     public Plant(Field field, Location location) {
         super(field, location);
+        scheduleDeath();
+    }
+    
+    /**
+     * Create a plant, reusing a dead one from the field's pool if there is one.
+     * @param field The field currently occupied.
+     * @param location The location within the field.
+     * @return The plant.
+     */
+    public static Plant create(Field field, Location location) {
+        Plant plant = (Plant) field.getPool().obtain(Species.PLANT);
+        if (plant == null) {
+            return new Plant(field, location);
+        }
+        plant.revive(field, location);
+        plant.scheduleDeath();
+        return plant;
     }
     
     /**
-     * Increase the age.
-     * This could result in the plant's death.
+     * Work out the age at which a plant dies.
+     * @return The lifespan of a plant.
      */
-    private void incrementAge()
-    {
-        age++;
-        if(age > MAX_AGE) {
-            setDead();
+    private static int lifespan() {
+        int age = 1;
+        for(double height = 1; height <= MAX_HEIGHT; height *= GROWTH_RATE) {
+            age++;
         }
+        return Math.min(MAX_AGE + 1, age);
+    }
+    
+    /**
+     * Schedule the death of a newborn plant in the field's age calendar.
+     */
+    private void scheduleDeath() {
+        field.getAgeCalendar().schedule(this, field.getClock().getStep() + LIFESPAN);
+    }
+    
+    /**
+     * The plant has grown too old or too tall, and dies.
+     */
+    protected void ageDue() {
+        setDead();
     }
     
     /**
      * This is what the plant does most of the time - it grows in height and stays in a fixed position.
-     * Sometimes it die of old age or if it reaches the maximum height.
+     * It dies of old age or once it reaches the maximum height, at the step set in the age calendar.
      * @param newPlants A list to return newly born plants.
      */
     protected void act(List<Organism> newPlants) {
-        incrementAge();
         if(weather.rainCounter() == true){
             grow(newPlants);
         }    
-        if(isAlive()){
-            if(height <= MAX_HEIGHT) {
-               height *= GROWTH_RATE; 
-            }
-            else{
-                setDead();
+    }
+    
+    /**
+     * Plan what the plant does in a step of the two-phase step mode.
+     * This is what act does, but the plant only records what it means to do.
+     * @param intents The intents of the organisms for this step.
+     */
+    protected void plan(StepIntents intents) {
+        if(weather.rainCounter() == true){
+            try(Field.Neighbourhood cells = field.neighbours(getLocation(), 1)) {
+                while(cells.next()) {
+                    if (cells.getSpecies() == Species.EMPTY && rand.nextDouble() < PLANT_GROWTH_PROBABILITY) {
+                        intents.seed(this, cells.getLocation());
+                    }
+                }
             }
         }
     }
     
+    /**
+     * Create a new plant at the given location.
+     * @param field The field the plant grows in.
+     * @param location Where the plant grows.
+     * @return The new plant.
+     */
+    protected Organism offspring(Field field, Location location) {
+        return Plant.create(field, location);
+    }
+    
     /**
      * If the adjacent locations to a plant are not occupied, plants grow there on each step.
      * @param newPlants are being grown.
      */
     protected void grow(List<Organism> newPlants) {
         if (getLocation()!= null) {
-            List<Location> locations = field.adjacentLocations(getLocation());
-            for (int i = 0; i < locations.size(); i++) {
-                if (field.getObjectAt(locations.get(i)) == null && rand.nextDouble() < PLANT_GROWTH_PROBABILITY) {
-                    Plant plant = new Plant(field, locations.get(i));
-                    newPlants.add(plant);
+            try(Field.Neighbourhood cells = field.neighbours(getLocation(), 1)) {
+                while(cells.next()) {
+                    if (cells.getSpecies() == Species.EMPTY && rand.nextDouble() < PLANT_GROWTH_PROBABILITY) {
+                        Plant plant = Plant.create(field, cells.getLocation());
+                        newPlants.add(plant);
+                    }
                 }
             }
         }
@@ -0,0 +1,219 @@
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * The plants of a field kept as a primitive grid rather than as Plant
+ * objects: the age and height of the plant in each cell, updated for the
+ * whole field at once by a few sweeps over the arrays each step.
+ *
+ * The rules are those of Plant. Each step every plant grows older, and
+ * dies once too old. Every surviving plant seeds each empty adjacent cell
+ * with probability PLANT_GROWTH_PROBABILITY, so an empty cell next to n
+ * plants gains one with probability 1 - (1 - PLANT_GROWTH_PROBABILITY)^n.
+ * Then the plants grow taller, and die once too tall. The seeding draws
+ * its random numbers for each cell from the step and the cell, so it does
+ * not depend on the order the cells are swept in.
+ *
+ * The plants are marked in the field's species grid with no object of
+ * their own, so animals find and trample them as they do Plant objects.
+ * The field tells the layer whenever a plant's cell is taken or cleared,
+ * so the layer always agrees with the field.
+ *
+ * @author Anirudh George and Ahmet Bayazitoglu
+ * @version 2022.03.02
+ */
+public class PlantLayer
+{
+    // The chance of an empty cell being seeded, indexed by the number of plants around it.
+    private static final double[] SEEDING_CHANCE = new double[9];
+
+    static {
+        for(int n = 0; n < SEEDING_CHANCE.length; n++) {
+            SEEDING_CHANCE[n] = 1 - Math.pow(1 - Plant.PLANT_GROWTH_PROBABILITY, n);
+        }
+    }
+
+    // The field the plants grow in, and its size.
+    private Field field;
+    private int depth, width;
+    // The age and height of the plant in each cell, in row-major order.
+    // A height of zero is a cell with no plant.
+    private byte[] age;
+    private float[] height;
+    // The number of plants in each cell and the two beside it in its row,
+    // and then the number of plants around each cell.
+    private byte[] rowCounts, neighbours;
+
+    /**
+     * Create an empty plant layer for the given field, and attach it to the field.
+     * @param field The field the plants grow in.
+     */
+    public PlantLayer(Field field)
+    {
+        this.field = field;
+        depth = field.getDepth();
+        width = field.getWidth();
+        age = new byte[depth * width];
+        height = new float[depth * width];
+        rowCounts = new byte[depth * width];
+        neighbours = new byte[depth * width];
+        field.setPlantLayer(this);
+    }
+
+    /**
+     * Plant a new plant in the given cell, which must be empty.
+     * @param row The row of the cell.
+     * @param col The column of the cell.
+     */
+    public void plant(int row, int col)
+    {
+        int cell = row * width + col;
+        age[cell] = 0;
+        height[cell] = 1;
+        field.placeSpecies(Species.PLANT, row, col);
+    }
+
+    /**
+     * Forget the plant in the given cell, if there is one. The field calls
+     * this when the cell is taken or cleared, so the cell is not touched.
+     * Different cells may be uprooted from different threads at once.
+     * @param row The row of the cell.
+     * @param col The column of the cell.
+     */
+    void uproot(int row, int col)
+    {
+        height[row * width + col] = 0;
+    }
+
+    /**
+     * Remove every plant. The field must be cleared as well.
+     */
+    public void clear()
+    {
+        Arrays.fill(age, (byte) 0);
+        Arrays.fill(height, 0);
+    }
+
+    /**
+     * Write the ages and heights of the plants to a checkpoint.
+     * @param out The checkpoint being written.
+     */
+    void write(Checkpoint.Output out) throws IOException
+    {
+        out.putBytes(age);
+        for(float h : height) {
+            out.putFloat(h);
+        }
+    }
+
+    /**
+     * Read the ages and heights of the plants from a checkpoint. The field
+     * reads the locations of the plants itself.
+     * @param in The checkpoint being read.
+     */
+    void read(Checkpoint.Input in) throws IOException
+    {
+        in.getBytes(age);
+        for(int cell = 0; cell < height.length; cell++) {
+            height[cell] = in.getFloat();
+        }
+    }
+
+    /**
+     * Run the plants for one step.
+     * @param step The number of the step, for the random numbers of the seeding.
+     */
+    public void step(int step)
+    {
+        // Age the plants, and let those too old die.
+        for(int cell = 0; cell < age.length; cell++) {
+            if(height[cell] > 0 && ++age[cell] > Plant.MAX_AGE) {
+                kill(cell);
+            }
+        }
+        countNeighbours();
+        // Grow the plants, and let those too tall die. They have seeded already.
+        for(int cell = 0; cell < height.length; cell++) {
+            float h = height[cell];
+            if(h > 0) {
+                if(h <= Plant.MAX_HEIGHT) {
+                    height[cell] = h * (float) Plant.GROWTH_RATE;
+                }
+                else {
+                    kill(cell);
+                }
+            }
+        }
+        seed(step);
+    }
+
+    /**
+     * Count the live plants around each cell, first along the rows and
+     * then down the columns. A plant does not count itself.
+     */
+    private void countNeighbours()
+    {
+        for(int row = 0; row < depth; row++) {
+            int start = row * width;
+            for(int col = 0; col < width; col++) {
+                int cell = start + col;
+                int count = height[cell] > 0 ? 1 : 0;
+                if(col > 0 && height[cell - 1] > 0) {
+                    count++;
+                }
+                if(col < width - 1 && height[cell + 1] > 0) {
+                    count++;
+                }
+                rowCounts[cell] = (byte) count;
+            }
+        }
+        for(int cell = 0; cell < neighbours.length; cell++) {
+            int count = rowCounts[cell] - (height[cell] > 0 ? 1 : 0);
+            if(cell >= width) {
+                count += rowCounts[cell - width];
+            }
+            if(cell + width < neighbours.length) {
+                count += rowCounts[cell + width];
+            }
+            neighbours[cell] = (byte) count;
+        }
+    }
+
+    /**
+     * Seed the empty cells next to plants.
+     * @param step The number of the step.
+     */
+    private void seed(int step)
+    {
+        for(int cell = 0; cell < neighbours.length; cell++) {
+            int count = neighbours[cell];
+            if(count > 0 && height[cell] == 0) {
+                int row = cell / width;
+                int col = cell - row * width;
+                double chance = (Randomizer.valueAt(step, randomKey(row, col), 0) >>> 11) * 0x1.0p-53;
+                if(chance < SEEDING_CHANCE[count] && field.getSpeciesAt(row, col) == Species.EMPTY) {
+                    plant(row, col);
+                }
+            }
+        }
+    }
+
+    /**
+     * Return the key of the random numbers for the given cell, made
+     * the same way as Organism.getRandomKey is for a plant there.
+     */
+    private static long randomKey(int row, int col)
+    {
+        long cell = ((long) row << 32) | col;
+        return cell * Species.values().length + Species.PLANT.ordinal();
+    }
+
+    /**
+     * Let the plant in the given cell die.
+     */
+    private void kill(int cell)
+    {
+        field.clear(cell / width, cell % width);
+        height[cell] = 0;
+    }
+}
@@ -0,0 +1,406 @@
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Records the population of each species after every step, and how long
+ * the step took, as a time series in a binary file.
+ *
+ * The counts are taken from the field's own counts, so recording costs the
+ * simulation a few array writes a step. The time is that of the step alone,
+ * as measured by the Simulator, without the time taken by the observers.
+ * Records are gathered into chunks, and full chunks are handed through a
+ * bounded queue to a background thread, which encodes them and writes them
+ * to the file through a buffered file channel. The simulation never waits
+ * for the file: should the queue be full, up to MAX_HELD_CHUNKS chunks are
+ * held back until the writer catches up. Past that, whole chunks are
+ * dropped, and a gap in the file says how many records were lost.
+ *
+ * The file starts with a header naming the species. Each record then holds
+ * the change in the step number, the change in the count of each species,
+ * and the time of the step in microseconds, each as a variable-length
+ * integer, so a step in which little changes takes a few bytes. The lowest
+ * bit of the first number tells a record from a gap, which holds only the
+ * number of records dropped. Run this class with the name of a file to
+ * print it as CSV.
+ *
+ * @author Anirudh George and Ahmet Bayazitoglu
+ * @version 2022.03.02
+ */
+public class PopulationRecorder implements SimulationObserver, AutoCloseable
+{
+    // The first int of a time series file, and the version of its layout.
+    private static final int MAGIC = 0x504F5053;
+    private static final int VERSION = 2;
+    // The species recorded, which are all but EMPTY.
+    private static final Species[] SPECIES = recordedSpecies();
+    // The numbers in each record: the step, the counts and the time.
+    private static final int RECORD_SIZE = SPECIES.length + 2;
+    // The number of records in a chunk, and of chunks in the queue.
+    private static final int CHUNK_RECORDS = 1024;
+    private static final int QUEUE_CHUNKS = 16;
+    // The most full chunks held back when the queue is full.
+    private static final int MAX_HELD_CHUNKS = 64;
+    // The step given to a gap in a chunk, whose next number is the
+    // number of records dropped.
+    private static final long GAP = -1;
+    // The size of the buffer between the writer and the file.
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    // The chunks waiting to be written. An empty chunk marks the end.
+    private BlockingQueue<long[]> queue = new ArrayBlockingQueue<>(QUEUE_CHUNKS);
+    // Full chunks that did not fit in the queue, oldest first.
+    private ArrayDeque<long[]> held = new ArrayDeque<>();
+    // The chunk being filled, and how many numbers are in it.
+    private long[] chunk = new long[CHUNK_RECORDS * RECORD_SIZE];
+    private int filled;
+    // The number of records dropped since the last gap was put in a chunk.
+    private long dropped;
+    // The background thread, and the file it writes.
+    private Thread writer;
+    private FileChannel channel;
+    // The first error the writer met, if any.
+    private volatile IOException failure;
+
+    /**
+     * Create a recorder writing to the given file, which is replaced.
+     * @param path The file to write.
+     * @throws IOException If the file cannot be created.
+     */
+    public PopulationRecorder(Path path) throws IOException
+    {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                   StandardOpenOption.TRUNCATE_EXISTING);
+        writer = new Thread(this::write, "PopulationRecorder");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Record the population of the field, with no time for the step.
+     * @param step The number of the step, or zero after a reset.
+     * @param field The field of the simulation.
+     */
+    public void stepped(int step, Field field)
+    {
+        stepped(step, field, 0);
+    }
+
+    /**
+     * Record the population of the field after a step, and how long the
+     * step took. Should records have been dropped since the last was
+     * recorded, a gap saying how many goes before it.
+     * @param step The number of the step, or zero after a reset.
+     * @param field The field of the simulation.
+     * @param nanos How long the step took, in nanoseconds.
+     */
+    public void stepped(int step, Field field, long nanos)
+    {
+        // Handing on the chunk with the gap may drop it, and the gap with
+        // it; the gap then goes in the new chunk, which has room for it.
+        while(dropped > 0) {
+            addGap();
+            endRecord();
+        }
+        chunk[filled++] = step;
+        for(Species species : SPECIES) {
+            chunk[filled++] = field.getCount(species);
+        }
+        chunk[filled++] = nanos / 1000;
+        endRecord();
+    }
+
+    /**
+     * Write the remaining records and close the file. The simulation
+     * waits for the writer here, and only here; nothing more is dropped.
+     * @throws IOException If the writer could not write the file.
+     */
+    public void close() throws IOException
+    {
+        // A full chunk is always handed on, so there is room for the gap.
+        if(dropped > 0) {
+            addGap();
+        }
+        if(filled > 0) {
+            held.add(Arrays.copyOf(chunk, filled));
+        }
+        chunk = new long[0];
+        filled = 0;
+        try {
+            while(!held.isEmpty()) {
+                queue.put(held.poll());
+            }
+            queue.put(new long[0]);
+            writer.join();
+        }
+        catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while closing the population record.", e);
+        }
+        finally {
+            channel.close();
+        }
+        if(failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Put a gap for the records dropped into the chunk being filled.
+     */
+    private void addGap()
+    {
+        chunk[filled] = GAP;
+        chunk[filled + 1] = dropped;
+        filled += RECORD_SIZE;
+        dropped = 0;
+    }
+
+    /**
+     * Finish a record or gap, handing on the chunk if it is full.
+     */
+    private void endRecord()
+    {
+        if(filled == chunk.length) {
+            hand(chunk);
+            chunk = new long[CHUNK_RECORDS * RECORD_SIZE];
+            filled = 0;
+        }
+    }
+
+    /**
+     * Hand a full chunk of records to the writer, holding it back, along
+     * with any after it, if the queue is full. Should the most chunks be
+     * held back already, the chunk is dropped and its records counted.
+     */
+    private void hand(long[] records)
+    {
+        while(!held.isEmpty() && queue.offer(held.peek())) {
+            held.poll();
+        }
+        if(held.isEmpty() && queue.offer(records)) {
+            return;
+        }
+        if(held.size() < MAX_HELD_CHUNKS) {
+            held.add(records);
+            return;
+        }
+        for(int record = 0; record < records.length; record += RECORD_SIZE) {
+            dropped += records[record] == GAP ? records[record + 1] : 1;
+        }
+    }
+
+    /**
+     * Encode and write the chunks in the queue until the end is reached.
+     * This is run by the writer thread.
+     */
+    private void write()
+    {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        long[] previous = new long[RECORD_SIZE];
+        try {
+            buffer.putInt(MAGIC);
+            buffer.putInt(VERSION);
+            buffer.put((byte) SPECIES.length);
+            for(Species species : SPECIES) {
+                byte[] name = species.name().getBytes(StandardCharsets.US_ASCII);
+                buffer.put((byte) name.length);
+                buffer.put(name);
+            }
+            long[] records;
+            while((records = queue.take()).length > 0) {
+                for(int record = 0; record < records.length; record += RECORD_SIZE) {
+                    if(buffer.remaining() < RECORD_SIZE * 10) {
+                        flush(buffer);
+                    }
+                    if(records[record] == GAP) {
+                        // A gap: the number dropped, with the lowest bit set.
+                        putVarint(buffer, records[record + 1] << 1 | 1);
+                        continue;
+                    }
+                    // The step and the counts as changes, the time as it is;
+                    // the step has its lowest bit clear.
+                    putVarint(buffer, zigZag(records[record] - previous[0]) << 1);
+                    previous[0] = records[record];
+                    for(int i = 1; i < RECORD_SIZE - 1; i++) {
+                        putVarint(buffer, zigZag(records[record + i] - previous[i]));
+                        previous[i] = records[record + i];
+                    }
+                    putVarint(buffer, records[record + RECORD_SIZE - 1]);
+                }
+            }
+            flush(buffer);
+        }
+        catch(IOException e) {
+            failure = e;
+            // Keep taking chunks so the simulation is not held up.
+            drain();
+        }
+        catch(InterruptedException e) {
+            failure = new IOException("The population writer was interrupted.", e);
+        }
+    }
+
+    /**
+     * Discard the chunks in the queue until the end is reached.
+     */
+    private void drain()
+    {
+        try {
+            while(queue.take().length > 0) {
+                // Nothing more can be written.
+            }
+        }
+        catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Write out what is in the buffer.
+     */
+    private void flush(ByteBuffer buffer) throws IOException
+    {
+        buffer.flip();
+        while(buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Print a time series file as CSV: a header line naming the columns,
+     * then a line for each step. A gap is printed as a comment line.
+     * @param args The name of the file.
+     */
+    public static void main(String[] args) throws IOException
+    {
+        if(args.length < 1) {
+            System.out.println("Usage: java PopulationRecorder file");
+            return;
+        }
+        try(FileChannel in = FileChannel.open(Paths.get(args[0]), StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            buffer.limit(0);
+            fill(in, buffer, 9);
+            if(buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                throw new IOException("Not a population record of this version: " + args[0]);
+            }
+            int species = buffer.get();
+            StringBuilder line = new StringBuilder("step");
+            for(int i = 0; i < species; i++) {
+                fill(in, buffer, 1);
+                byte[] name = new byte[buffer.get()];
+                fill(in, buffer, name.length);
+                buffer.get(name);
+                line.append(',').append(new String(name, StandardCharsets.US_ASCII));
+            }
+            System.out.println(line.append(",micros"));
+            long[] values = new long[species + 1];
+            while(fill(in, buffer, 1)) {
+                long first = getVarint(in, buffer);
+                if((first & 1) != 0) {
+                    System.out.println("# dropped " + (first >>> 1) + " records");
+                    continue;
+                }
+                line.setLength(0);
+                values[0] += unZigZag(first >>> 1);
+                line.append(values[0]).append(',');
+                for(int i = 1; i < values.length; i++) {
+                    values[i] += unZigZag(getVarint(in, buffer));
+                    line.append(values[i]).append(',');
+                }
+                System.out.println(line.append(getVarint(in, buffer)));
+            }
+        }
+    }
+
+    /**
+     * Read from the channel until the buffer holds at least the given number
+     * of bytes, or the file ends.
+     * @return true if the buffer holds the bytes; false at the end of the file.
+     */
+    private static boolean fill(FileChannel in, ByteBuffer buffer, int bytes) throws IOException
+    {
+        if(buffer.remaining() >= bytes) {
+            return true;
+        }
+        buffer.compact();
+        while(buffer.position() < bytes) {
+            if(in.read(buffer) < 0) {
+                buffer.flip();
+                return false;
+            }
+        }
+        buffer.flip();
+        return true;
+    }
+
+    /**
+     * Write a number as seven bits a byte, low bits first, with the top bit
+     * of each byte set if more follow.
+     */
+    private static void putVarint(ByteBuffer buffer, long value)
+    {
+        while((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    /**
+     * Read a number written by putVarint.
+     */
+    private static long getVarint(FileChannel in, ByteBuffer buffer) throws IOException
+    {
+        long value = 0;
+        for(int shift = 0; shift < 64; shift += 7) {
+            if(!fill(in, buffer, 1)) {
+                throw new EOFException("The population record is incomplete.");
+            }
+            byte b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if(b >= 0) {
+                return value;
+            }
+        }
+        throw new IOException("A number in the population record is too long.");
+    }
+
+    /**
+     * Map a signed number to an unsigned one, so small changes either way
+     * take few bytes.
+     */
+    private static long zigZag(long value)
+    {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    /**
+     * Undo zigZag.
+     */
+    private static long unZigZag(long value)
+    {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * @return Every species but EMPTY.
+     */
+    private static Species[] recordedSpecies()
+    {
+        return Arrays.stream(Species.values())
+                     .filter(species -> species != Species.EMPTY)
+                     .toArray(Species[]::new);
+    }
+}
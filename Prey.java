@@ -28,4 +28,18 @@ public abstract class Prey extends Animal
      * Abstract method which is overriden by each of the prey to find their plant food.
      */
     abstract protected void giveBirth(List<Organism> newPrey);
+    
+    /**
+     * Eat the plant at the given location. A plant of the field's plant
+     * layer has no object of its own, and is cleared from the field instead.
+     * @param where The location of the plant.
+     */
+    protected void eatAt(Location where)
+    {
+        Organism food = (Organism) field.getObjectAt(where);
+        if(food == null) {
+            field.clear(where);
+        }
+        eat(food);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,76 @@
+import java.util.Random;
+
+/**
+ * Measure how fast the counter-based streams of the Randomizer hand out
+ * random numbers, against java.util.Random. Each generator is run for a
+ * number of rounds, and the time per number of the fastest round is printed.
+ *
+ * @author Anirudh George and Ahmet Bayazitoglu
+ * @version 2022.03.02
+ */
+public class RandomBenchmark
+{
+    // The number of random numbers drawn in each round.
+    private static final int DRAWS = 20_000_000;
+    // The number of rounds for each generator.
+    private static final int ROUNDS = 5;
+
+    /**
+     * Run the benchmark.
+     * @param args Not used.
+     */
+    public static void main(String[] args)
+    {
+        report("java.util.Random", new Random(1111));
+        report("Randomizer stream", new Randomizer.Stream(1111));
+        Randomizer.beginStream(1, 0);
+        report("Randomizer shared", Randomizer.getRandom());
+        Randomizer.endStream();
+        reportKeyed();
+    }
+
+    /**
+     * Time a generator drawing doubles and bounded ints, and print the result.
+     * @param name The name of the generator.
+     * @param rand The generator.
+     */
+    private static void report(String name, Random rand)
+    {
+        long best = Long.MAX_VALUE;
+        double sink = 0;
+        for(int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            for(int i = 0; i < DRAWS; i++) {
+                sink += rand.nextDouble() + rand.nextInt(8);
+            }
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        print(name, best, 2 * DRAWS, sink);
+    }
+
+    /**
+     * Time the stateless numbers of the Randomizer, with a new
+     * key for every number, and print the result.
+     */
+    private static void reportKeyed()
+    {
+        long best = Long.MAX_VALUE;
+        double sink = 0;
+        for(int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            for(int i = 0; i < DRAWS; i++) {
+                sink += Randomizer.valueAt(round, i, 0) >>> 60;
+            }
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        print("Randomizer keyed", best, DRAWS, sink);
+    }
+
+    /**
+     * Print the time per number of a generator.
+     */
+    private static void print(String name, long nanos, int draws, double sink)
+    {
+        System.out.printf("%-20s %6.2f ns per number (%.0f)%n", name, (double) nanos / draws, sink % 10);
+    }
+}
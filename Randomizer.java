@@ -1,3 +1,4 @@
+import java.io.IOException;
 import java.util.Random;
 
 /**
@@ -5,6 +6,19 @@ import java.util.Random;
  * randomizer, repeated runs will perform exactly the same (which helps with testing). Set 
  * 'useShared' to false to get different random behaviour every time.
  * 
+ * The numbers come from a counter-based generator in the style of SplitMix64:
+ * the n-th number of a stream is a hash of the stream's key and n, so any
+ * stream can be started anywhere without depending on any other.
+ * 
+ * The shared generator draws from the sequential stream, unless the current
+ * thread has been given a stream of its own with beginStream. Each organism
+ * is given a stream keyed by the seed, the step and where it starts the step,
+ * so what it draws does not depend on the order the organisms act in, or on
+ * which thread runs it.
+ * 
+ * Each thread has its own seed and sequential stream, so simulations run
+ * side by side on different threads do not disturb each other.
+ * 
  * @author David J. Barnes and Michael Kölling
  * @version 2016.02.29
  */
@@ -12,8 +26,12 @@ public class Randomizer
 {
     // The default seed for control of randomization.
     private static final int SEED = 1111;
-    // A shared Random object, if required.
-    private static final Random rand = new Random(SEED);
+    // The increment between the counters of successive numbers in a stream.
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+    // The seed and streams of each thread.
+    private static final ThreadLocal<Streams> streams = ThreadLocal.withInitial(Streams::new);
+    // A shared Random object, if required. It draws from the current stream.
+    private static final Random rand = new Shared();
     // Determine whether a shared random generator is to be provided.
     private static final boolean useShared = true;
 
@@ -39,14 +57,226 @@ public class Randomizer
     }
     
     /**
-     * Reset the randomization.
+     * Reset the randomization of the current thread.
      * This will have no effect if randomization is not through
      * a shared Random generator.
      */
     public static void reset()
     {
         if(useShared) {
-            rand.setSeed(SEED);
+            Streams thread = streams.get();
+            thread.sequential.setSeed(thread.seed);
+        }
+    }
+    
+    /**
+     * Use the given seed on the current thread from now on,
+     * and reset its randomization.
+     * @param newSeed The seed to use.
+     */
+    public static void setSeed(long newSeed)
+    {
+        streams.get().seed = newSeed;
+        reset();
+    }
+    
+    /**
+     * Return the seed in use on the current thread.
+     * @return The seed.
+     */
+    public static long getSeed()
+    {
+        return streams.get().seed;
+    }
+    
+    /**
+     * Give the current thread its own stream of random numbers, until
+     * endStream is called. The stream depends only on the seed, the given
+     * step and the key, so the same work repeated on any thread draws the
+     * same numbers. Beginning another stream replaces the current one.
+     * @param step The simulation step.
+     * @param key What the stream is for, such as an organism's random key.
+     */
+    public static void beginStream(int step, long key)
+    {
+        Streams thread = streams.get();
+        thread.keyed.seek(keyFor(thread.seed, step, key));
+        thread.open = true;
+    }
+    
+    /**
+     * Return the current thread to the sequential stream.
+     */
+    public static void endStream()
+    {
+        streams.get().open = false;
+    }
+    
+    /**
+     * Write the seed and the position in the sequential stream of the
+     * current thread to a checkpoint.
+     * @param out The checkpoint being written.
+     */
+    static void write(Checkpoint.Output out) throws IOException
+    {
+        Streams thread = streams.get();
+        out.putLong(thread.seed);
+        out.putLong(thread.sequential.key);
+        out.putLong(thread.sequential.counter);
+    }
+    
+    /**
+     * Read the seed and the position in the sequential stream of the
+     * current thread from a checkpoint, so that it carries on where it was.
+     * @param in The checkpoint being read.
+     */
+    static void read(Checkpoint.Input in) throws IOException
+    {
+        Streams thread = streams.get();
+        thread.seed = in.getLong();
+        thread.sequential.key = in.getLong();
+        thread.sequential.counter = in.getLong();
+    }
+    
+    /**
+     * Return a random number for the given step, key and counter, without
+     * using any stream. The same arguments always give the same number.
+     * @param step The simulation step.
+     * @param key What the number is for.
+     * @param counter Which of the numbers for the step and key to return.
+     * @return A random number with all 64 bits random.
+     */
+    public static long valueAt(int step, long key, long counter)
+    {
+        return mix(keyFor(getSeed(), step, key) + GOLDEN_GAMMA * (counter + 1));
+    }
+    
+    /**
+     * Return the key of the stream for the given seed, step and key.
+     */
+    private static long keyFor(long seed, int step, long key)
+    {
+        return mix(mix(seed + GOLDEN_GAMMA * step) + key);
+    }
+    
+    /**
+     * Scramble the bits of a value, using the finalizer of SplitMix64.
+     */
+    private static long mix(long z)
+    {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+    
+    /**
+     * A counter-based stream of random numbers. The n-th number
+     * is the hash of the stream's key plus n times the golden gamma.
+     */
+    static class Stream extends Random
+    {
+        private static final long serialVersionUID = 1L;
+
+        // The key of the stream, and how many numbers have been drawn.
+        private long key, counter;
+        Stream(long seed)
+        {
+            super(seed);
+        }
+        
+        /**
+         * Start the stream again from the given seed.
+         */
+        public void setSeed(long seed)
+        {
+            seek(mix(seed));
+        }
+        
+        /**
+         * Start the stream again with the given key.
+         */
+        void seek(long key)
+        {
+            this.key = key;
+            counter = 0;
+        }
+        
+        protected int next(int bits)
+        {
+            return (int) (nextLong() >>> (64 - bits));
+        }
+        
+        public long nextLong()
+        {
+            counter++;
+            return mix(key + GOLDEN_GAMMA * counter);
+        }
+        
+        public double nextDouble()
+        {
+            return (nextLong() >>> 11) * 0x1.0p-53;
+        }
+        
+        public boolean nextBoolean()
+        {
+            return nextLong() < 0;
+        }
+    }
+    
+    /**
+     * The seed and streams of a thread.
+     */
+    private static class Streams
+    {
+        // The seed in use on the thread.
+        long seed = SEED;
+        // The sequential stream of random numbers.
+        Stream sequential = new Stream(SEED);
+        // The stream given to the thread by beginStream, and whether it is in use.
+        Stream keyed = new Stream(SEED);
+        boolean open;
+    }
+    
+    /**
+     * The shared Random, which draws from the current thread's
+     * stream if it is open, or the sequential stream if not.
+     */
+    private static class Shared extends Random
+    {
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Return the stream to draw from.
+         */
+        private Stream stream()
+        {
+            Streams thread = streams.get();
+            return thread.open ? thread.keyed : thread.sequential;
+        }
+        
+        protected int next(int bits)
+        {
+            return stream().next(bits);
+        }
+        
+        public int nextInt(int bound)
+        {
+            return stream().nextInt(bound);
+        }
+        
+        public long nextLong()
+        {
+            return stream().nextLong();
+        }
+        
+        public double nextDouble()
+        {
+            return stream().nextDouble();
+        }
+        
+        public boolean nextBoolean()
+        {
+            return stream().nextBoolean();
         }
     }
 }
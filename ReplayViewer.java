@@ -0,0 +1,222 @@
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.io.IOException;
+import java.nio.file.Paths;
+import javax.swing.JButton;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JSlider;
+import javax.swing.JSpinner;
+import javax.swing.JTextField;
+import javax.swing.SpinnerNumberModel;
+import javax.swing.Timer;
+import javax.swing.WindowConstants;
+
+/**
+ * Plays back a run recorded by a FrameRecorder in a SimulatorView, with the
+ * same colors as the simulation, without running the simulation again.
+ *
+ * The run plays at any number of frames a second; the view is repainted at
+ * most TICKS_PER_SECOND times a second, so at higher speeds frames are
+ * skipped rather than painted. The slider and the step field jump straight
+ * to a frame, which the FrameReader finds from its index of keyframes.
+ *
+ * Run this class with the name of a file, and optionally the number of
+ * frames a second and the step to start at.
+ *
+ * @author Anirudh George and Ahmet Bayazitoglu
+ * @version 2022.03.02
+ */
+public class ReplayViewer
+{
+    // The number of times a second the playback moves on.
+    private static final int TICKS_PER_SECOND = 25;
+
+    private FrameReader reader;
+    private SimulatorView view;
+    // The number of frames in the recording.
+    private int frameCount;
+    // Frames a second, and the part of a frame due but not yet shown.
+    private int speed;
+    private double due;
+    private Timer timer;
+    private JButton playButton;
+    private JSlider slider;
+    private JTextField stepField;
+    // Whether the slider is being moved to follow the playback.
+    private boolean following;
+
+    /**
+     * Create a viewer of a recording, showing its first frame.
+     * @param reader The recording. It is closed when the viewer is.
+     * @param speed How many frames a second to play.
+     * @throws IOException If the recording cannot be read.
+     */
+    public ReplayViewer(FrameReader reader, int speed) throws IOException
+    {
+        this.reader = reader;
+        this.speed = speed;
+        frameCount = reader.getFrameCount();
+        if(frameCount == 0) {
+            throw new IOException("The recording has no frames.");
+        }
+
+        view = new SimulatorView(reader.getDepth(), reader.getWidth());
+        view.setTitle("Rainforest Replay");
+        Simulator.setColors(view);
+
+        playButton = new JButton("Play");
+        playButton.addActionListener(e -> setPlaying(!timer.isRunning()));
+        JButton stepButton = new JButton("Step");
+        stepButton.addActionListener(e -> {
+            setPlaying(false);
+            showFrame(Math.min(reader.getFrame() + 1, frameCount - 1));
+        });
+        JSpinner speedSpinner = new JSpinner(new SpinnerNumberModel(speed, 1, 1000000, 1));
+        speedSpinner.addChangeListener(e -> this.speed = (Integer) speedSpinner.getValue());
+        slider = new JSlider(0, frameCount - 1, 0);
+        slider.addChangeListener(e -> {
+            if(!following) {
+                showFrame(slider.getValue());
+            }
+        });
+        stepField = new JTextField(8);
+        stepField.addActionListener(e -> showStep(stepField.getText().trim()));
+
+        JPanel controls = new JPanel();
+        controls.add(playButton);
+        controls.add(stepButton);
+        controls.add(new JLabel("Frames/s:"));
+        controls.add(speedSpinner);
+        controls.add(slider);
+        controls.add(new JLabel("Go to step:"));
+        controls.add(stepField);
+        view.addControls(controls);
+
+        timer = new Timer(1000 / TICKS_PER_SECOND, e -> tick());
+        view.setDefaultCloseOperation(WindowConstants.DISPOSE_ON_CLOSE);
+        view.addWindowListener(new WindowAdapter() {
+            public void windowClosed(WindowEvent e)
+            {
+                close();
+            }
+        });
+        showFrame(0);
+    }
+
+    /**
+     * Start or stop the playback.
+     * @param playing Whether to play.
+     */
+    public void setPlaying(boolean playing)
+    {
+        if(playing && reader.getFrame() == frameCount - 1) {
+            // Play again from the start.
+            showFrame(0);
+        }
+        if(playing) {
+            due = 0;
+            timer.start();
+        }
+        else {
+            timer.stop();
+        }
+        playButton.setText(playing ? "Pause" : "Play");
+    }
+
+    /**
+     * Show the given frame.
+     * @param frame The number of the frame, counting from 0.
+     */
+    public void showFrame(int frame)
+    {
+        try {
+            reader.seekFrame(frame);
+        }
+        catch(IOException e) {
+            setPlaying(false);
+            view.setInfoText("Cannot read the recording: " + e.getMessage());
+            return;
+        }
+        view.showFrame(reader.getStep(), reader.getTags(), reader.getWidth());
+        view.setInfoText("Frame " + (frame + 1) + " of " + frameCount);
+        following = true;
+        slider.setValue(frame);
+        following = false;
+    }
+
+    /**
+     * Show the first frame of the step typed in the step field.
+     */
+    private void showStep(String text)
+    {
+        try {
+            int frame = reader.findFrame(Integer.parseInt(text));
+            if(frame < 0) {
+                view.setInfoText("No frame of step " + text);
+            }
+            else {
+                setPlaying(false);
+                showFrame(frame);
+            }
+        }
+        catch(NumberFormatException e) {
+            view.setInfoText("Not a step: " + text);
+        }
+        catch(IOException e) {
+            view.setInfoText("Cannot read the recording: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Move the playback on by the frames due since the last tick.
+     */
+    private void tick()
+    {
+        due += (double) speed / TICKS_PER_SECOND;
+        int frames = (int) due;
+        if(frames == 0) {
+            return;
+        }
+        due -= frames;
+        int frame = (int) Math.min((long) reader.getFrame() + frames, frameCount - 1);
+        showFrame(frame);
+        if(frame == frameCount - 1) {
+            setPlaying(false);
+        }
+    }
+
+    /**
+     * Stop the playback and close the recording.
+     */
+    private void close()
+    {
+        timer.stop();
+        try {
+            reader.close();
+        }
+        catch(IOException e) {
+            // Nothing more is read from it.
+        }
+    }
+
+    /**
+     * Play back a recording.
+     * @param args The name of the file, optionally followed by the number
+     *             of frames a second (25 by default) and the step to start at.
+     */
+    public static void main(String[] args) throws IOException
+    {
+        if(args.length < 1) {
+            System.out.println("Usage: java ReplayViewer file [frames-per-second [step]]");
+            return;
+        }
+        int speed = args.length > 1 ? Integer.parseInt(args[1]) : TICKS_PER_SECOND;
+        FrameReader reader = new FrameReader(Paths.get(args[0]));
+        ReplayViewer viewer = new ReplayViewer(reader, speed);
+        if(args.length > 2) {
+            viewer.showStep(args[2]);
+        }
+        viewer.setPlaying(true);
+    }
+}
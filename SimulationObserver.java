@@ -0,0 +1,31 @@
+/**
+ * Something that watches a simulation, such as a view of the field or a
+ * collector of statistics. Observers are told about the state of the field
+ * after the simulation is reset and after every step.
+ *
+ * @author Anirudh George and Ahmet Bayazitoglu
+ * @version 2022.03.02
+ */
+public interface SimulationObserver
+{
+    /**
+     * Take note of the state of the field after a step.
+     * @param step The number of the step, or zero after a reset.
+     * @param field The field of the simulation.
+     */
+    void stepped(int step, Field field);
+
+    /**
+     * Take note of the state of the field after a step, and of how long
+     * the step took. Observers that want the time override this; others
+     * are told as stepped(step, field).
+     * @param step The number of the step, or zero after a reset.
+     * @param field The field of the simulation.
+     * @param nanos How long the step took to run, in nanoseconds, not
+     *              counting the observers; zero after a reset.
+     */
+    default void stepped(int step, Field field, long nanos)
+    {
+        stepped(step, field);
+    }
+}
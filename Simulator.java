@@ -1,13 +1,20 @@
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.Random;
 import java.util.List;
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.Arrays;
 import java.awt.Color;
 
 /**
  * A predator-prey simulator, based on a rectangular field in a rainforest
  * containing animals and plants with other stimuli affecting these.
  * 
+ * The simulation itself needs no display. Observers are told about the field
+ * after every step; the graphical view is one of them, and AWT is only loaded
+ * once it is attached. The main method runs a simulation without a view.
+ * 
  * @author David J. Barnes and Michael Kölling
  * @author Anirudh George and Ahmet Bayazitoglu
  * @version 2022.03.02 
@@ -19,31 +26,23 @@ public class Simulator
     private static final int DEFAULT_WIDTH = 120;
     // The default depth of the grid.
     private static final int DEFAULT_DEPTH = 80;
-    // The probability that a jaguar will be created in any given grid position.
-    private static final double JAGUAR_CREATION_PROBABILITY = 0.02;
-    // The probability that a tortoise will be created in any given grid position.
-    private static final double TORTOISE_CREATION_PROBABILITY = 0.12;  
-    // The probability that a bear will be created in any given grid position.
-    private static final double BEAR_CREATION_PROBABILITY = 0.01;
-    // The probability that a deer will be created in any given grid position.
-    private static final double DEER_CREATION_PROBABILITY = 0.12;
-    // The probability that a tiger will be created in any given grid position.
-    private static final double TIGER_CREATION_PROBABILITY = 0.01;
-    // The probability that a plant seed will be created in any given grid position.
-    private static final double SEED_GERMINATION_RATE = 0.10;
 
     // List of animals in the field.
     private List<Organism> organisms;
     // The current state of the field.
     private Field field;
+    // The probabilities of creating each species when the field is populated.
+    private CreationProbabilities probabilities;
     // The current step of the simulation.
     private int step;
-    // A graphical view of the simulation.
-    private SimulatorView view;
+    // The observers of the simulation, such as a graphical view.
+    private List<SimulationObserver> observers = new ArrayList<>();
     //The animal's gender.
     private Animal.Gender gender;
-    //The weather
-    private Weather weather = new Weather();
+    // The engine that runs each step on several threads, if one is in use.
+    private TiledStepEngine engine;
+    // Whether each step is planned by all the organisms before any of it is applied.
+    private boolean twoPhase;
     /**
      * Construct a simulation field with default size.
      */
@@ -53,11 +52,51 @@ public class Simulator
     }
     
     /**
-     * Create a simulation field with the given size.
+     * Create a simulation field with the given size, shown in a graphical view.
      * @param depth Depth of the field. Must be greater than zero.
      * @param width Width of the field. Must be greater than zero.
      */
     public Simulator(int depth, int width)
+    {
+        this(depth, width, true);
+    }
+    
+    /**
+     * Create a simulation field with the given size.
+     * @param depth Depth of the field. Must be greater than zero.
+     * @param width Width of the field. Must be greater than zero.
+     * @param showView Whether to show the simulation in a graphical view.
+     */
+    public Simulator(int depth, int width, boolean showView)
+    {
+        this(depth, width, showView, new CreationProbabilities());
+    }
+    
+    /**
+     * Create a simulation field with the given size, populated
+     * with the given probabilities.
+     * @param depth Depth of the field. Must be greater than zero.
+     * @param width Width of the field. Must be greater than zero.
+     * @param showView Whether to show the simulation in a graphical view.
+     * @param probabilities The probabilities of creating each species.
+     */
+    public Simulator(int depth, int width, boolean showView, CreationProbabilities probabilities)
+    {
+        this(depth, width, showView, probabilities, false);
+    }
+    
+    /**
+     * Create a simulation field with the given size, populated
+     * with the given probabilities, optionally keeping the state of the
+     * field's positions off the heap.
+     * @param depth Depth of the field. Must be greater than zero.
+     * @param width Width of the field. Must be greater than zero.
+     * @param showView Whether to show the simulation in a graphical view.
+     * @param probabilities The probabilities of creating each species.
+     * @param offHeap Whether to keep the state of the field's positions off the heap.
+     */
+    public Simulator(int depth, int width, boolean showView, CreationProbabilities probabilities,
+                     boolean offHeap)
     {
         if(width <= 0 || depth <= 0) {
             System.out.println("The dimensions must be greater than zero.");
@@ -67,18 +106,145 @@ public class Simulator
         }
         
         organisms = new ArrayList<>();
-        field = new Field(depth, width);
+        field = new Field(depth, width, offHeap);
+        this.probabilities = probabilities;
 
-        // Create a view of the state of each location in the field.
-        view = new SimulatorView(depth, width);
+        if(showView) {
+            attachView();
+        }
+        // Setup a valid starting point.
+        reset();
+    }
+    
+    /**
+     * Create a simulation of the given field, to be filled from a checkpoint.
+     * @param field The field.
+     * @param probabilities The probabilities of creating each species.
+     */
+    private Simulator(Field field, CreationProbabilities probabilities)
+    {
+        organisms = new ArrayList<>();
+        this.field = field;
+        this.probabilities = probabilities;
+    }
+    
+    /**
+     * Run a simulation without a view, printing the population as it goes.
+     * The arguments are the depth and width of the field, the seed, and
+     * the number of steps, optionally followed by how many steps apart
+     * to print the population (100 by default), a file to save a
+     * checkpoint to as often ("-" for none), a file to record the
+     * population of every step in ("-" for none), and a file to record
+     * the frames of the run in, for FrameReader and ReplayViewer. A run
+     * saved that way is resumed with the arguments "resume", the file, the
+     * number of steps, and optionally the interval and files for the
+     * population and the frames; it carries on saving to the same file.
+     * A new run keeps the field off the heap if the arguments start with
+     * "-offheap"; a resumed run keeps the field as its checkpoint did.
+     * @param args The command line arguments.
+     */
+    public static void main(String[] args) throws IOException
+    {
+        boolean offHeap = args.length > 0 && args[0].equals("-offheap");
+        if(offHeap) {
+            args = Arrays.copyOfRange(args, 1, args.length);
+        }
+        Simulator simulator;
+        int steps;
+        String series;
+        String frames;
+        if(args.length >= 3 && args[0].equals("resume")) {
+            Path checkpoint = Paths.get(args[1]);
+            steps = Integer.parseInt(args[2]);
+            int interval = args.length > 3 ? Integer.parseInt(args[3]) : 100;
+            series = args.length > 4 ? args[4] : null;
+            frames = args.length > 5 ? args[5] : null;
+            simulator = restoreCheckpoint(checkpoint, false);
+            simulator.addObserver(new StatsPrinter(interval));
+            simulator.addObserver(new CheckpointSaver(simulator, checkpoint, interval));
+        }
+        else if(args.length >= 4) {
+            int depth = Integer.parseInt(args[0]);
+            int width = Integer.parseInt(args[1]);
+            long seed = Long.parseLong(args[2]);
+            steps = Integer.parseInt(args[3]);
+            int interval = args.length > 4 ? Integer.parseInt(args[4]) : 100;
+            series = args.length > 6 ? args[6] : null;
+            frames = args.length > 7 ? args[7] : null;
+            
+            Randomizer.setSeed(seed);
+            simulator = new Simulator(depth, width, false, new CreationProbabilities(), offHeap);
+            simulator.addObserver(new StatsPrinter(interval));
+            if(args.length > 5 && !args[5].equals("-")) {
+                simulator.addObserver(new CheckpointSaver(simulator, Paths.get(args[5]), interval));
+            }
+        }
+        else {
+            System.out.println("Usage: java Simulator [-offheap] depth width seed steps " +
+                               "[interval [checkpoint [population [frames]]]]");
+            System.out.println("       java Simulator resume checkpoint steps [interval [population [frames]]]");
+            return;
+        }
+        if("-".equals(series)) {
+            series = null;
+        }
+        // A recorder left null is not used, nor closed.
+        try(PopulationRecorder recorder = series == null ? null : new PopulationRecorder(Paths.get(series));
+            FrameRecorder frameRecorder = frames == null ? null :
+                new FrameRecorder(Paths.get(frames), simulator.getField(), FrameRecorder.KEYFRAME_INTERVAL)) {
+            if(recorder != null) {
+                simulator.addObserver(recorder);
+            }
+            if(frameRecorder != null) {
+                simulator.addObserver(frameRecorder);
+            }
+            simulator.simulate(steps);
+        }
+    }
+    
+    /**
+     * Create a graphical view of the state of each location in the field,
+     * and show the simulation in it from now on.
+     */
+    public void attachView()
+    {
+        SimulatorView view = new SimulatorView(field.getDepth(), field.getWidth());
+        setColors(view);
+        addObserver(view);
+    }
+    
+    /**
+     * Give a view the color of each species.
+     * @param view The view.
+     */
+    static void setColors(SimulatorView view)
+    {
         view.setColor(Tortoise.class, Color.ORANGE);
         view.setColor(Jaguar.class, Color.BLUE);
         view.setColor(Tiger.class, Color.RED);
         view.setColor(Deer.class, Color.YELLOW);
         view.setColor(Bear.class, Color.BLACK);
         view.setColor(Plant.class, Color.GREEN);
-        // Setup a valid starting point.
-        reset();
+    }
+    
+    /**
+     * Tell the given observer about the simulation from now on,
+     * starting with its current state.
+     * @param observer The observer to add.
+     */
+    public void addObserver(SimulationObserver observer)
+    {
+        observers.add(observer);
+        observer.stepped(step, field);
+    }
+    
+    /**
+     * Stop telling the given observer about the simulation.
+     * @param observer The observer to remove.
+     */
+    public void removeObserver(SimulationObserver observer)
+    {
+        observers.remove(observer);
     }
     
     /**
@@ -97,12 +263,65 @@ public class Simulator
      */
     public void simulate(int numSteps)
     {
-        for(int step = 1; step <= numSteps && view.isViable(field); step++) {
+        for(int step = 1; step <= numSteps && isViable(); step++) {
             simulateOneStep();
             //delay(60);   // uncomment this to run more slowly
         }
     }
     
+    /**
+     * Run each step on the given number of threads, with the field split
+     * into tiles. The results do not depend on the number of threads, but
+     * differ from those of running the organisms one after another.
+     * @param threads The number of threads, or zero to run on this thread only.
+     */
+    public void useParallelEngine(int threads)
+    {
+        if(engine != null) {
+            engine.shutdown();
+            engine = null;
+        }
+        if(threads > 0) {
+            engine = new TiledStepEngine(threads);
+        }
+    }
+    
+    /**
+     * Choose whether to run each step in two phases. First every organism
+     * plans its step against the field as it was at the start of the step,
+     * then the plans are settled and applied together, so the results do
+     * not depend on the order of the organisms. This takes precedence over
+     * the parallel engine.
+     * @param twoPhase true to run each step in two phases.
+     */
+    public void useTwoPhaseSteps(boolean twoPhase)
+    {
+        if(twoPhase && field.getPlantLayer() != null) {
+            throw new IllegalStateException("Two-phase steps cannot be used with a plant layer.");
+        }
+        this.twoPhase = twoPhase;
+    }
+    
+    /**
+     * Choose whether to keep the plants as a primitive grid, a PlantLayer,
+     * rather than as Plant objects. The simulation is reset to make the change.
+     * The plant layer cannot be used with two-phase steps.
+     * @param plantLayer true to keep the plants in a plant layer.
+     */
+    public void usePlantLayer(boolean plantLayer)
+    {
+        if(plantLayer && twoPhase) {
+            throw new IllegalStateException("A plant layer cannot be used with two-phase steps.");
+        }
+        if(plantLayer && field.getPlantLayer() == null) {
+            new PlantLayer(field);
+        }
+        else if(!plantLayer) {
+            field.setPlantLayer(null);
+        }
+        reset();
+    }
+    
      /**
      * Run the simulation from its current state for a single step.
      * Iterate over the whole field updating the state of each
@@ -110,25 +329,124 @@ public class Simulator
      */
     public void simulateOneStep()
     {
+        long start = System.nanoTime();
         step++;
-        weather.dayCounter++;
-        weather.dayTimeUpdate();
-        weather.noRainCounter++;
-        weather.rainCounter();
-        // Provide space for newborn animals.
-        List<Organism> newOrganisms = new ArrayList<>();
-        
-        // Let all organisms act.
-        for(Iterator<Organism> it = organisms.iterator(); it.hasNext(); ) {
-            Organism organism = it.next();
-            organism.act(newOrganisms);
-            if(! organism.isAlive()) {
-                it.remove();
+        field.setCurrentStep(step);
+        // Spread the disease among the animals.
+        field.getDisease().spread();
+        // Let the organisms due to come of age or die of old age do so.
+        field.getAgeCalendar().advance(step);
+        // Grow the plants of the plant layer, if there is one, before the animals act.
+        PlantLayer plants = field.getPlantLayer();
+        if(plants != null) {
+            plants.step(step);
+        }
+        if(twoPhase) {
+            StepIntents intents = new StepIntents(field);
+            for(Organism organism : organisms) {
+                if(organism.isAlive()) {
+                    Randomizer.beginStream(step, organism.getRandomKey());
+                    organism.plan(intents);
+                }
+            }
+            Randomizer.endStream();
+            List<Organism> newOrganisms = new ArrayList<>();
+            intents.resolve(organisms, newOrganisms);
+            compactOrganisms(newOrganisms);
+        }
+        else if(engine != null) {
+            engine.step(organisms, field, step);
+        }
+        else {
+            // Provide space for newborn animals.
+            List<Organism> newOrganisms = new ArrayList<>();
+            
+            // Let all organisms act, except that those asleep at this time
+            // of day only rest. The dead are dropped once all have acted.
+            Clock.Phase phase = field.getClock().getPhase();
+            for(int i = 0; i < organisms.size(); i++) {
+                Organism organism = organisms.get(i);
+                if(!organism.isAlive()) {
+                    continue;
+                }
+                if(organism.sleepsIn(phase)) {
+                    organism.rest();
+                }
+                else {
+                    Randomizer.beginStream(step, organism.getRandomKey());
+                    organism.act(newOrganisms);
+                }
+            }
+            Randomizer.endStream();
+            compactOrganisms(newOrganisms);
+        }
+        long nanos = System.nanoTime() - start;
+        // With assertions enabled, check the field's counts against a scan.
+        assert field.checkCounts();
+        notifyObservers(nanos);
+    }
+    
+    /**
+     * Drop the dead organisms from the list and add the newborns, in a
+     * single pass. The survivors keep their order and the newborns follow
+     * them in the order they were born, so seeded runs are reproducible.
+     * @param newOrganisms The organisms born in the step.
+     */
+    private void compactOrganisms(List<Organism> newOrganisms)
+    {
+        int size = organisms.size();
+        int live = 0;
+        for(int i = 0; i < size; i++) {
+            Organism organism = organisms.get(i);
+            if(!recycleIfDead(organism)) {
+                organisms.set(live++, organism);
+            }
+        }
+        // The newborns fill the places of the dead first.
+        for(Organism organism : newOrganisms) {
+            if(live < size) {
+                organisms.set(live, organism);
+            }
+            else {
+                organisms.add(organism);
             }
+            live++;
+        }
+        if(live < size) {
+            organisms.subList(live, size).clear();
         }
-        // Add the newly born organisms to the main lists.
-        organisms.addAll(newOrganisms);
-        view.showStatus(step, field);
+    }
+    
+    /**
+     * Hand an organism that has died back to the field's pool for reuse.
+     * The organism must be removed from the list of organisms straight away.
+     * @param organism The organism.
+     * @return true if the organism is dead.
+     */
+    private boolean recycleIfDead(Organism organism)
+    {
+        if(organism.isAlive()) {
+            return false;
+        }
+        field.getPool().release(organism);
+        return true;
+    }
+    
+    /**
+     * Determine whether the simulation is still viable.
+     * I.e., should it continue to run. This uses the field's counts,
+     * so neither the field nor the organisms are scanned.
+     * @return true If there is more than one species alive.
+     */
+    public boolean isViable()
+    {
+        int alive = 0;
+        for(Species species : Species.values()) {
+            if(species != Species.EMPTY && field.getCount(species) > 0) {
+                alive++;
+            }
+        }
+        return alive > 1;
     }
         
     /**
@@ -137,11 +455,86 @@ public class Simulator
     public void reset()
     {
         step = 0;
+        field.setCurrentStep(step);
+        for(Organism organism : organisms) {
+            if(organism.isAlive()) {
+                organism.setDead();
+            }
+            field.getPool().release(organism);
+        }
         organisms.clear();
         populate();
         
-        // Show the starting state in the view.
-        view.showStatus(step, field);
+        // Show the starting state to the observers.
+        notifyObservers(0);
+    }
+    
+    /**
+     * Save the whole state of the simulation to a checkpoint file, from
+     * which it can be restored to carry on exactly as it would have: the
+     * settings, the organisms, the field and all it keeps, the weather
+     * and the random numbers. Observers are not saved.
+     * @param path The file to save to. An earlier checkpoint there is only
+     *             replaced once the new one is complete.
+     * @throws IOException If the checkpoint cannot be written.
+     */
+    public void saveCheckpoint(Path path) throws IOException
+    {
+        try(Checkpoint.Output out = new Checkpoint.Output(path)) {
+            out.putInt(field.getDepth());
+            out.putInt(field.getWidth());
+            out.putBoolean(field.isOffHeap());
+            out.putBoolean(field.getPlantLayer() != null);
+            for(Species species : Species.values()) {
+                out.putDouble(probabilities.get(species));
+            }
+            out.putBoolean(twoPhase);
+            out.putInt(engine == null ? 0 : engine.getThreads());
+            out.putInt(step);
+            Organism.weather.write(out);
+            out.putOrganisms(organisms);
+            field.write(out);
+            Randomizer.write(out);
+            out.finish();
+        }
+    }
+    
+    /**
+     * Restore a simulation from a checkpoint file saved by saveCheckpoint.
+     * The simulation carries on exactly as the one saved would have, on
+     * this thread's random numbers, which are set to those saved.
+     * @param path The file to restore from.
+     * @param showView Whether to show the simulation in a graphical view.
+     * @return The restored simulation.
+     * @throws IOException If the checkpoint cannot be read.
+     */
+    public static Simulator restoreCheckpoint(Path path, boolean showView) throws IOException
+    {
+        try(Checkpoint.Input in = new Checkpoint.Input(path)) {
+            int depth = in.getInt();
+            int width = in.getInt();
+            Field field = new Field(depth, width, in.getBoolean());
+            if(in.getBoolean()) {
+                new PlantLayer(field);
+            }
+            CreationProbabilities probabilities = new CreationProbabilities();
+            for(Species species : Species.values()) {
+                probabilities.set(species, in.getDouble());
+            }
+            Simulator simulator = new Simulator(field, probabilities);
+            simulator.twoPhase = in.getBoolean();
+            simulator.useParallelEngine(in.getInt());
+            simulator.step = in.getInt();
+            field.setCurrentStep(simulator.step);
+            Organism.weather.read(in);
+            simulator.organisms.addAll(in.getOrganisms(field));
+            field.read(in);
+            Randomizer.read(in);
+            if(showView) {
+                simulator.attachView();
+            }
+            return simulator;
+        }
     }
     
     /**
@@ -154,72 +547,121 @@ public class Simulator
         Random genderDecider = Randomizer.getRandom();
         for(int row = 0; row < field.getDepth(); row++) {
             for(int col = 0; col < field.getWidth(); col++) {
-                if(rand.nextDouble() <= JAGUAR_CREATION_PROBABILITY) {
-                    Location location = new Location(row, col);
+                if(rand.nextDouble() <= probabilities.get(Species.JAGUAR)) {
+                    Location location = field.getLocation(row, col);
                     if (genderDecider.nextDouble() > 0.5) {
-                       Jaguar jaguar = new Jaguar(true, field, location, gender.MALE);
+                       Jaguar jaguar = Jaguar.create(true, field, location, gender.MALE);
                        organisms.add(jaguar);
                     }
                     else{
-                        Jaguar jaguar = new Jaguar(true, field, location, gender.FEMALE);
+                        Jaguar jaguar = Jaguar.create(true, field, location, gender.FEMALE);
                         organisms.add(jaguar); 
                     }
                 }
                 
-                else if(rand.nextDouble() <= TORTOISE_CREATION_PROBABILITY) {
-                    Location location = new Location(row, col);
+                else if(rand.nextDouble() <= probabilities.get(Species.TORTOISE)) {
+                    Location location = field.getLocation(row, col);
                     if (genderDecider.nextDouble() > 0.5) {
-                        Tortoise tortoise = new Tortoise(true, field, location, gender.MALE);
+                        Tortoise tortoise = Tortoise.create(true, field, location, gender.MALE);
                         organisms.add(tortoise);
                     }
                     else{
-                        Tortoise tortoise = new Tortoise(true, field, location, gender.FEMALE);
+                        Tortoise tortoise = Tortoise.create(true, field, location, gender.FEMALE);
                         organisms.add(tortoise); 
                     }
                 }
-                else if(rand.nextDouble() <= BEAR_CREATION_PROBABILITY) {
-                    Location location = new Location(row, col);
+                else if(rand.nextDouble() <= probabilities.get(Species.BEAR)) {
+                    Location location = field.getLocation(row, col);
                     if (genderDecider.nextDouble() > 0.5) {
-                        Bear bear = new Bear(true, field, location, gender.MALE);
+                        Bear bear = Bear.create(true, field, location, gender.MALE);
                         organisms.add(bear);
                     }
                     else{
-                        Bear bear = new Bear(true, field, location, gender.FEMALE);
+                        Bear bear = Bear.create(true, field, location, gender.FEMALE);
                         organisms.add(bear); 
                     }
                 }
-                else if(rand.nextDouble() <= DEER_CREATION_PROBABILITY) {
-                    Location location = new Location(row, col);
+                else if(rand.nextDouble() <= probabilities.get(Species.DEER)) {
+                    Location location = field.getLocation(row, col);
                     if (genderDecider.nextDouble() > 0.5) {
-                        Deer deer = new Deer(true, field, location, gender.MALE);
+                        Deer deer = Deer.create(true, field, location, gender.MALE);
                         organisms.add(deer);
                     }
                     else{
-                        Deer deer = new Deer(true, field, location, gender.FEMALE);
+                        Deer deer = Deer.create(true, field, location, gender.FEMALE);
                         organisms.add(deer); 
                     }
                 }
-                else if(rand.nextDouble() <= TIGER_CREATION_PROBABILITY) {
-                    Location location = new Location(row, col);
+                else if(rand.nextDouble() <= probabilities.get(Species.TIGER)) {
+                    Location location = field.getLocation(row, col);
                     if (genderDecider.nextDouble() > 0.5) {
-                       Tiger tiger = new Tiger(true, field, location, gender.MALE);
+                       Tiger tiger = Tiger.create(true, field, location, gender.MALE);
                        organisms.add(tiger);
                     }
                     else{
-                        Tiger tiger = new Tiger(true, field, location, gender.FEMALE);
+                        Tiger tiger = Tiger.create(true, field, location, gender.FEMALE);
                         organisms.add(tiger); 
                     }
                     // else leave the location empty.
                 }
-                else if (rand.nextDouble() <= SEED_GERMINATION_RATE) {
-                    Location location = new Location(row, col);
-                    Plant plant = new Plant(field, location);
-                    organisms.add(plant);
+                else if (rand.nextDouble() <= probabilities.get(Species.PLANT)) {
+                    if(field.getPlantLayer() != null) {
+                        field.getPlantLayer().plant(row, col);
+                    }
+                    else {
+                        Location location = field.getLocation(row, col);
+                        Plant plant = Plant.create(field, location);
+                        organisms.add(plant);
+                    }
                 }
             }
         }
     }
     
+    /**
+     * Return the current step of the simulation.
+     * @return The number of steps run since the last reset.
+     */
+    public int getStep()
+    {
+        return step;
+    }
+    
+    /**
+     * Return the field of the simulation.
+     * @return The field.
+     */
+    public Field getField()
+    {
+        return field;
+    }
+    
+    /**
+     * Count the live organisms of each species, as the field keeps count of them.
+     * @return The number of live organisms, indexed by species.
+     */
+    public int[] getPopulation()
+    {
+        int[] counts = new int[Species.values().length];
+        for(Species species : Species.values()) {
+            if(species != Species.EMPTY) {
+                counts[species.ordinal()] = field.getCount(species);
+            }
+        }
+        return counts;
+    }
+    
+    /**
+     * Tell every observer about the current state of the field.
+     * @param nanos How long the step took, in nanoseconds, or zero after a reset.
+     */
+    private void notifyObservers(long nanos)
+    {
+        for(SimulationObserver observer : observers) {
+            observer.stepped(step, field, nanos);
+        }
+    }
+    
     /**
      * Pause for a given time.
      * @param millisec  The time to pause for, in milliseconds
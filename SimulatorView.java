@@ -15,7 +15,7 @@ import java.util.concurrent.TimeUnit;
  * @author Anirudh George  and Ahmet Bayazitoglu 
  * @version 2022.03.02 
  */
-public class SimulatorView extends JFrame
+public class SimulatorView extends JFrame implements SimulationObserver
 {
     // Colors used for empty locations.
     private static final Color EMPTY_COLOR = Color.white;
@@ -25,6 +25,7 @@ public class SimulatorView extends JFrame
 
     private final String STEP_PREFIX = "Step: ";
     private final String POPULATION_PREFIX = "Population: ";
+    private final String INFECTED_PREFIX = "Infected: ";
     private JLabel stepLabel, population, infoLabel;
     private FieldView fieldView;
     
@@ -109,29 +110,116 @@ public class SimulatorView extends JFrame
             setVisible(true);
         }
         
-        stepLabel.setText(STEP_PREFIX + step + "" + " Weather:" +weather.randomWeather());
+        stepLabel.setText(STEP_PREFIX + step + "" + " Weather:" +weather.randomWeather() +
+                          " Time:" + field.getClock().getPhase());
+        // The counts are taken from the field when they are next wanted.
         stats.reset();
         
         fieldView.preparePaint();
 
-        for(int row = 0; row < field.getDepth(); row++) {
-            for(int col = 0; col < field.getWidth(); col++) {
-                Object animal = field.getObjectAt(row, col);
-                if(animal != null) {
-                    stats.incrementCount(animal.getClass());
-                    fieldView.drawMark(col, row, getColor(animal.getClass()));
+        for(int tileRow = 0; tileRow < field.getTileRows(); tileRow++) {
+            for(int tileCol = 0; tileCol < field.getTileCols(); tileCol++) {
+                int firstRow = tileRow * Field.TILE_SIZE;
+                int firstCol = tileCol * Field.TILE_SIZE;
+                int lastRow = Math.min(firstRow + Field.TILE_SIZE, field.getDepth());
+                int lastCol = Math.min(firstCol + Field.TILE_SIZE, field.getWidth());
+                if(field.isTileEmpty(tileRow, tileCol)) {
+                    // Paint the whole tile at once.
+                    fieldView.drawBlock(firstCol, firstRow, lastCol - firstCol, lastRow - firstRow, EMPTY_COLOR);
+                    continue;
                 }
-                else {
-                    fieldView.drawMark(col, row, EMPTY_COLOR);
+                for(int row = firstRow; row < lastRow; row++) {
+                    for(int col = firstCol; col < lastCol; col++) {
+                        Species species = field.getSpeciesAt(row, col);
+                        if(species != Species.EMPTY) {
+                            fieldView.drawMark(col, row, getColor(species.getType()));
+                        }
+                        else {
+                            fieldView.drawMark(col, row, EMPTY_COLOR);
+                        }
+                    }
+                }
+            }
+        }
+
+        Disease disease = field.getDisease();
+        population.setText(POPULATION_PREFIX + stats.getPopulationDetails(field) +
+                           INFECTED_PREFIX + disease.getInfectedCount() +
+                           " (+" + disease.getNewInfections() + ")");
+        fieldView.repaint();
+    }
+
+    /**
+     * Show a frame of a recorded run: its step, the species grid, and the
+     * population counted from the grid.
+     * @param step The step of the frame.
+     * @param tags The species grid of the frame, in row-major order.
+     * @param width The width of the grid.
+     */
+    public void showFrame(int step, byte[] tags, int width)
+    {
+        if(!isVisible()) {
+            setVisible(true);
+        }
+
+        stepLabel.setText(STEP_PREFIX + step);
+        int[] counts = new int[Species.values().length];
+
+        fieldView.preparePaint();
+
+        for(int start = 0; start < tags.length; start += width) {
+            int row = start / width;
+            // Paint each run of the same species in a row at once.
+            for(int col = 0; col < width; ) {
+                byte tag = tags[start + col];
+                int run = 1;
+                while(col + run < width && tags[start + col + run] == tag) {
+                    run++;
                 }
+                Species species = Species.fromTag(tag);
+                Color color = species == Species.EMPTY ? EMPTY_COLOR : getColor(species.getType());
+                fieldView.drawBlock(col, row, run, 1, color);
+                counts[tag] += run;
+                col += run;
             }
         }
-        stats.countFinished();
 
-        population.setText(POPULATION_PREFIX + stats.getPopulationDetails(field));
+        StringBuilder details = new StringBuilder(POPULATION_PREFIX);
+        for(Species species : Species.values()) {
+            if(species != Species.EMPTY && counts[species.getTag()] > 0) {
+                details.append(species.getType().getName()).append(": ")
+                       .append(counts[species.getTag()]).append(' ');
+            }
+        }
+        population.setText(details.toString());
         fieldView.repaint();
     }
 
+    /**
+     * Add a row of controls below the population.
+     * @param controls The controls.
+     */
+    public void addControls(JComponent controls)
+    {
+        Container contents = getContentPane();
+        contents.remove(population);
+        JPanel southPane = new JPanel(new BorderLayout());
+        southPane.add(population, BorderLayout.NORTH);
+        southPane.add(controls, BorderLayout.SOUTH);
+        contents.add(southPane, BorderLayout.SOUTH);
+        pack();
+    }
+
+    /**
+     * Show the state of the field after a step.
+     * @param step Which iteration step it is.
+     * @param field The field whose status is to be displayed.
+     */
+    public void stepped(int step, Field field)
+    {
+        showStatus(step, field);
+    }
+
     /**
      * Determine whether the simulation should continue to run.
      * @return true If there is more than one species alive.
@@ -209,6 +297,15 @@ public class SimulatorView extends JFrame
             g.fillRect(x * xScale, y * yScale, xScale-1, yScale-1);
         }
 
+        /**
+         * Paint a block of grid locations on this field in a given color.
+         */
+        public void drawBlock(int x, int y, int width, int height, Color color)
+        {
+            g.setColor(color);
+            g.fillRect(x * xScale, y * yScale, width * xScale - 1, height * yScale - 1);
+        }
+
         /**
          * The field view component needs to be redisplayed. Copy the
          * internal image to screen.
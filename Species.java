@@ -0,0 +1,101 @@
+/**
+ * The kinds of organism that can occupy a location in the field.
+ * Each species has a small tag, so that the field can record what is
+ * in each location in a primitive grid alongside the organisms themselves.
+ *
+ * @author Anirudh George and Ahmet Bayazitoglu
+ * @version 2022.03.02
+ */
+public enum Species
+{
+    EMPTY(null),
+    PLANT(Plant.class),
+    TORTOISE(Tortoise.class),
+    DEER(Deer.class),
+    JAGUAR(Jaguar.class),
+    BEAR(Bear.class),
+    TIGER(Tiger.class);
+
+    // All species, indexed by tag.
+    private static final Species[] TAGS = values();
+
+    // The class of organism belonging to this species.
+    private final Class<?> type;
+
+    /**
+     * Create a species for the given class of organism.
+     * @param type The class of organism, or null for an empty location.
+     */
+    Species(Class<?> type)
+    {
+        this.type = type;
+    }
+
+    /**
+     * @return The tag used for this species in the field's species grid.
+     */
+    public byte getTag()
+    {
+        return (byte) ordinal();
+    }
+
+    /**
+     * Return a mask with just this species' bit set. Masks of several
+     * species can be combined with | to describe a set of species.
+     * @return The mask for this species.
+     */
+    public int getMask()
+    {
+        return 1 << ordinal();
+    }
+
+    /**
+     * @return The class of organism belonging to this species,
+     *         or null for an empty location.
+     */
+    public Class<?> getType()
+    {
+        return type;
+    }
+
+    /**
+     * Return the species with the given tag.
+     * @param tag A tag from the field's species grid.
+     * @return The species with that tag.
+     */
+    public static Species fromTag(byte tag)
+    {
+        return TAGS[tag];
+    }
+
+    /**
+     * Return the species of the given occupant of the field.
+     * @param occupant An organism, or null.
+     * @return The species of the occupant, or EMPTY if it is null.
+     */
+    public static Species of(Object occupant)
+    {
+        if(occupant == null) {
+            return EMPTY;
+        }
+        if(occupant instanceof Organism) {
+            return ((Organism) occupant).getSpecies();
+        }
+        return of(occupant.getClass());
+    }
+
+    /**
+     * Return the species for the given class of organism.
+     * @param type The class of organism.
+     * @return The species for that class.
+     */
+    public static Species of(Class<?> type)
+    {
+        for(Species species : TAGS) {
+            if(species.type == type) {
+                return species;
+            }
+        }
+        throw new IllegalArgumentException("No species for " + type.getName());
+    }
+}
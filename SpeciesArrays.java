@@ -0,0 +1,108 @@
+import java.util.Arrays;
+
+/**
+ * The organisms of one species, kept as a struct of arrays rather than as
+ * objects: one primitive array for each attribute, indexed by organism.
+ * An organism costs 9 bytes here, against several dozen as an object
+ * with its header, Location and references.
+ *
+ * Organisms that die are only flagged, so indexes stay valid during a step;
+ * compact removes them once the step is over.
+ *
+ * @author Anirudh George and Ahmet Bayazitoglu
+ * @version 2022.03.02
+ */
+public class SpeciesArrays
+{
+    // The flag bits of an organism.
+    static final byte FEMALE = 1;
+    static final byte DISEASED = 2;
+    static final byte DEAD = 4;
+
+    // The species of the organisms.
+    final Species species;
+    // The number of organisms, live or dead.
+    int size;
+    // The age and food level of each organism.
+    short[] age, food;
+    // The flags of each organism.
+    byte[] flags;
+    // The cell of each organism: its row times the width of the field, plus its column.
+    int[] cell;
+
+    /**
+     * Create an empty store for the given species.
+     * @param species The species of the organisms.
+     */
+    public SpeciesArrays(Species species)
+    {
+        this.species = species;
+        age = new short[16];
+        food = new short[16];
+        flags = new byte[16];
+        cell = new int[16];
+    }
+
+    /**
+     * Add an organism.
+     * @param cell The organism's cell.
+     * @param age The organism's age.
+     * @param food The organism's food level.
+     * @param flags The organism's flags.
+     * @return The index of the organism.
+     */
+    public int add(int cell, int age, int food, byte flags)
+    {
+        if(size == this.cell.length) {
+            int capacity = size * 2;
+            this.age = Arrays.copyOf(this.age, capacity);
+            this.food = Arrays.copyOf(this.food, capacity);
+            this.flags = Arrays.copyOf(this.flags, capacity);
+            this.cell = Arrays.copyOf(this.cell, capacity);
+        }
+        this.age[size] = (short) age;
+        this.food[size] = (short) food;
+        this.flags[size] = flags;
+        this.cell[size] = cell;
+        return size++;
+    }
+
+    /**
+     * @return Whether the organism with the given index is alive.
+     */
+    public boolean isAlive(int index)
+    {
+        return (flags[index] & DEAD) == 0;
+    }
+
+    /**
+     * Remove the dead organisms, keeping the live ones in order.
+     * @param occupants The occupant of each cell of the field, which is
+     *                  updated for the organisms whose index changes.
+     */
+    public void compact(int[] occupants)
+    {
+        int live = 0;
+        for(int i = 0; i < size; i++) {
+            if((flags[i] & DEAD) == 0) {
+                if(live != i) {
+                    age[live] = age[i];
+                    food[live] = food[i];
+                    flags[live] = flags[i];
+                    cell[live] = cell[i];
+                    occupants[cell[live]] = ArraySimulation.occupant(species, live);
+                }
+                live++;
+            }
+        }
+        size = live;
+    }
+
+    /**
+     * Remove every organism.
+     */
+    public void clear()
+    {
+        size = 0;
+    }
+}
@@ -0,0 +1,39 @@
+/**
+ * Prints the population of the field to the standard output every so
+ * many steps, for simulations run without a view, along with how many
+ * organisms of each species have been allocated and reused.
+ *
+ * @author Anirudh George and Ahmet Bayazitoglu
+ * @version 2022.03.02
+ */
+public class StatsPrinter implements SimulationObserver
+{
+    // How many steps apart the populations are printed.
+    private int interval;
+    // The statistics of the field.
+    private FieldStats stats = new FieldStats();
+
+    /**
+     * Create a printer for the population every given number of steps.
+     * @param interval How many steps apart to print. Must be greater than zero.
+     */
+    public StatsPrinter(int interval)
+    {
+        this.interval = interval;
+    }
+
+    /**
+     * Print the population if the step is one to be printed.
+     * @param step The number of the step, or zero after a reset.
+     * @param field The field of the simulation.
+     */
+    public void stepped(int step, Field field)
+    {
+        if(step % interval == 0) {
+            stats.reset();
+            Disease disease = field.getDisease();
+            System.out.println("Step " + step + ": " + stats.getPopulationDetails(field) +
+                               "Infected: " + disease.getInfectedCount() + " " + field.getPool());
+        }
+    }
+}
@@ -0,0 +1,257 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * What the organisms mean to do in one step of the two-phase step mode.
+ *
+ * In the first phase every organism plans its step against the field as it
+ * was at the start of the step, and records here what it means to do: die,
+ * eat, move, or give birth. Nothing in the field changes while the organisms
+ * plan, so no organism sees what another has done in the same step.
+ *
+ * In the second phase the intents are settled and applied together, kind by
+ * kind: deaths, then meals, then moves, then births. Where intents conflict
+ * the one recorded first wins, so the results are deterministic:
+ * - Of several predators after the same prey, the first eats it, and the
+ *   others move to a free adjacent location instead.
+ * - Of several animals moving into the same location, the first gets it,
+ *   and the others look for another free adjacent location.
+ * - Of several births into the same location, the first is born there,
+ *   and the others look for another free location in range.
+ * An animal that finds nowhere to go once the others have moved dies of
+ * overcrowding, as in act.
+ *
+ * @author Anirudh George and Ahmet Bayazitoglu
+ * @version 2022.03.02
+ */
+public class StepIntents
+{
+    // The field the organisms are in.
+    private Field field;
+    // The organisms that are to die.
+    private List<Organism> deaths = new ArrayList<>();
+    // The animals that are to eat, and what each is to eat.
+    private List<Animal> eaters = new ArrayList<>();
+    private List<Organism> meals = new ArrayList<>();
+    // The organisms that are to move, and where each is to move to.
+    private List<Organism> movers = new ArrayList<>();
+    private List<Location> destinations = new ArrayList<>();
+    // The births that are to happen.
+    private List<Birth> births = new ArrayList<>();
+
+    /**
+     * Create an empty set of intents for the organisms in the given field.
+     * @param field The field the organisms are in.
+     */
+    public StepIntents(Field field)
+    {
+        this.field = field;
+    }
+
+    /**
+     * Record that an organism is to die.
+     * @param organism The organism that is to die.
+     */
+    public void die(Organism organism)
+    {
+        deaths.add(organism);
+    }
+
+    /**
+     * Record that an animal is to eat another organism, and take its place.
+     * @param eater The animal that is to eat.
+     * @param food The organism it is to eat.
+     */
+    public void eat(Animal eater, Organism food)
+    {
+        eaters.add(eater);
+        meals.add(food);
+    }
+
+    /**
+     * Record that an organism is to move to a free location.
+     * @param organism The organism that is to move.
+     * @param destination Where it is to move to, or null if no adjacent
+     *                    location was free at the start of the step.
+     */
+    public void move(Organism organism, Location destination)
+    {
+        movers.add(organism);
+        destinations.add(destination);
+    }
+
+    /**
+     * Record that an organism is to give birth to young in
+     * free locations near where it is at the start of the step.
+     * @param parent The organism giving birth.
+     * @param count The number of young.
+     * @param radius How far from the parent the young may be born.
+     */
+    public void birth(Organism parent, int count, int radius)
+    {
+        if(count > 0) {
+            births.add(new Birth(parent, parent.getLocation(), count, radius));
+        }
+    }
+
+    /**
+     * Record that a plant is to seed a new plant at the given empty location.
+     * @param parent The plant seeding.
+     * @param location Where the new plant is to grow.
+     */
+    public void seed(Organism parent, Location location)
+    {
+        births.add(new Birth(parent, location, 1, 0));
+    }
+
+    /**
+     * Settle the intents and apply them to the field. The mating index
+     * is brought up to date for every animal once all have been applied.
+     * @param organisms The organisms that planned their step.
+     * @param newOrganisms A list to return the organisms born in the step.
+     */
+    public void resolve(List<Organism> organisms, List<Organism> newOrganisms)
+    {
+        for(Organism organism : deaths) {
+            if(organism.isAlive()) {
+                organism.setDead();
+            }
+        }
+
+        for(int i = 0; i < eaters.size(); i++) {
+            Animal eater = eaters.get(i);
+            Organism food = meals.get(i);
+            if(!eater.isAlive()) {
+                continue;
+            }
+            if(food.isAlive() && food.getLocation() != null) {
+                Location where = food.getLocation();
+                eater.eat(food);
+                eater.setLocation(where);
+            }
+            else {
+                // Another got there first.
+                moveAside(eater);
+            }
+        }
+
+        for(int i = 0; i < movers.size(); i++) {
+            Organism mover = movers.get(i);
+            Location destination = destinations.get(i);
+            if(!mover.isAlive()) {
+                continue;
+            }
+            Species there = destination == null ? null : field.getSpeciesAt(destination);
+            if(there == Species.EMPTY || there == Species.PLANT) {
+                trample(destination);
+                mover.setLocation(destination);
+            }
+            else {
+                moveAside(mover);
+            }
+        }
+
+        for(Birth birth : births) {
+            if(birth.radius == 0) {
+                if(field.getSpeciesAt(birth.centre) == Species.EMPTY) {
+                    newOrganisms.add(birth.parent.offspring(field, birth.centre));
+                }
+                continue;
+            }
+            try(Field.Neighbourhood free = field.neighbours(birth.centre, birth.radius)) {
+                for(int b = 0; b < birth.count && nextFree(free); b++) {
+                    newOrganisms.add(birth.parent.offspring(field, free.getLocation()));
+                }
+            }
+        }
+
+        for(Organism organism : organisms) {
+            if(organism instanceof Animal && organism.isAlive()) {
+                ((Animal) organism).updateMatingIndex();
+            }
+        }
+        clear();
+    }
+
+    /**
+     * Forget all the intents.
+     */
+    public void clear()
+    {
+        deaths.clear();
+        eaters.clear();
+        meals.clear();
+        movers.clear();
+        destinations.clear();
+        births.clear();
+    }
+
+    /**
+     * Move an organism to a free adjacent location,
+     * or let it die of overcrowding if there is none.
+     * @param organism The organism to move.
+     */
+    private void moveAside(Organism organism)
+    {
+        try(Field.Neighbourhood free = field.neighbours(organism.getLocation(), 1)) {
+            if(nextFree(free)) {
+                organism.setLocation(free.getLocation());
+                return;
+            }
+        }
+        organism.setDead();
+    }
+
+    /**
+     * Move to the next location in the neighbourhood that is empty or
+     * holds a plant, trampling the plant.
+     * @return true if such a location was found.
+     */
+    private boolean nextFree(Field.Neighbourhood cells)
+    {
+        while(cells.next()) {
+            Species species = cells.getSpecies();
+            if(species == Species.EMPTY) {
+                return true;
+            }
+            else if(species == Species.PLANT) {
+                trample(cells.getLocation());
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Kill the plant at the given location, if there is one. Clearing
+     * just its place in the field would leave the plant alive, and it
+     * would clear the location again when it died, from under whatever
+     * had taken its place.
+     */
+    private void trample(Location location)
+    {
+        Object plant = field.getObjectAt(location);
+        if(plant instanceof Plant) {
+            ((Plant) plant).setDead();
+        }
+    }
+
+    /**
+     * Young to be born into free locations around a centre.
+     * A radius of zero means a single young at the centre itself.
+     */
+    private static class Birth
+    {
+        private Organism parent;
+        private Location centre;
+        private int count, radius;
+
+        Birth(Organism parent, Location centre, int count, int radius)
+        {
+            this.parent = parent;
+            this.centre = centre;
+            this.count = count;
+            this.radius = radius;
+        }
+    }
+}
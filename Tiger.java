@@ -1,6 +1,6 @@
+import java.io.IOException;
 import java.util.Random;
 import java.util.List;
-import java.util.Iterator;
 
 /**
  * A simple model of a tiger.
@@ -29,14 +29,24 @@ public class Tiger extends Predator
     private static final int DEER_FOOD_VALUE = 6;
     // A shared random number generator to control breeding.
     private static final Random rand = Randomizer.getRandom();
+    // The species a tiger eats.
+    private static final int DIET = Species.TORTOISE.getMask() | Species.JAGUAR.getMask() |
+                                    Species.BEAR.getMask() | Species.DEER.getMask();
     //The maximum amount of food a tiger can have.
     private static final int MAX_FOOD_LEVEL = 240;
-    // The tiger's age.
-    private int age;
+    // The characteristics of a tiger, for the struct-of-arrays simulation
+    // and for scheduling its sleep.
+    static final AnimalTraits TRAITS =
+        new AnimalTraits(BREEDING_AGE, MAX_AGE, BREEDING_PROBABILITY, MAX_LITTER_SIZE,
+                         TORTOISE_FOOD_VALUE + BEAR_FOOD_VALUE + DEER_FOOD_VALUE + JAGUAR_FOOD_VALUE,
+                         TORTOISE_FOOD_VALUE)
+            .eats(Species.TORTOISE, TORTOISE_FOOD_VALUE)
+            .eats(Species.JAGUAR, JAGUAR_FOOD_VALUE)
+            .eats(Species.BEAR, BEAR_FOOD_VALUE)
+            .eats(Species.DEER, DEER_FOOD_VALUE)
+            .sleepsIn(Clock.Phase.NIGHT);
     // The tiger's food level, which is increased by eating any animal.
     private int foodLevel;
-    //The weather
-    private Weather weather = new Weather();
     /**
      * Create a new tiger. A tiger may be created with age
      * zero (a new born) or with a random age.
@@ -49,12 +59,43 @@ public class Tiger extends Predator
     public Tiger(boolean randomAge, Field field, Location location, Gender gender)
     {
         super(field, location, gender);
+        init(randomAge);
+        updateMatingIndex();
+    }
+    
+    /**
+     * Create a tiger, reusing a dead one from the field's pool if there is one.
+     * 
+     * @param randomAge If true, the tiger will have a random age.
+     * @param field The field currently occupied.
+     * @param location The location within the field.
+     * @param gender The gender of the tiger
+     * @return The tiger.
+     */
+    public static Tiger create(boolean randomAge, Field field, Location location, Gender gender)
+    {
+        Tiger tiger = (Tiger) field.getPool().obtain(Species.TIGER);
+        if(tiger == null) {
+            return new Tiger(randomAge, field, location, gender);
+        }
+        tiger.revive(field, location, gender);
+        tiger.init(randomAge);
+        tiger.updateMatingIndex();
+        return tiger;
+    }
+    
+    /**
+     * Set the age and food level of a new tiger.
+     * @param randomAge If true, the tiger will have a random age.
+     */
+    private void init(boolean randomAge)
+    {
         if(randomAge) {
-            age = rand.nextInt(MAX_AGE);
+            setAge(rand.nextInt(MAX_AGE));
             foodLevel = rand.nextInt(TORTOISE_FOOD_VALUE);
         }
         else {
-            age = 0;
+            setAge(0);
             foodLevel = TORTOISE_FOOD_VALUE + BEAR_FOOD_VALUE + DEER_FOOD_VALUE + JAGUAR_FOOD_VALUE;
         }
     }
@@ -68,12 +109,8 @@ public class Tiger extends Predator
      */
     protected void act(List<Organism> newTigers)
     {
-        incrementAge();
         incrementHunger();
-        if(weather.dayCounter == 3 ){
-            sleep();
-        }
-        else if(isAlive()) {
+        if(isAlive()) {
            
             meet(newTigers);
             // Move towards a source of food if found.
@@ -94,16 +131,71 @@ public class Tiger extends Predator
     }
 
     /**
-     * Increase the age. This could result in the tiger's death.
+     * Write the tiger's own state to a checkpoint.
+     * @param out The checkpoint being written.
      */
-    private void incrementAge()
+    protected void writeState(Checkpoint.Output out) throws IOException
     {
-        age++;
-        if(age > MAX_AGE) {
-            setDead();
+        super.writeState(out);
+        out.putInt(foodLevel);
+    }
+    
+    /**
+     * Read the tiger's own state from a checkpoint.
+     * @param in The checkpoint being read.
+     */
+    protected void readState(Checkpoint.Input in) throws IOException
+    {
+        super.readState(in);
+        foodLevel = in.getInt();
+    }
+
+    /**
+     * Sleep through a step: the tiger only grows hungrier,
+     * which may kill it.
+     */
+    protected void rest()
+    {
+        incrementHunger();
+    }
+    
+    /**
+     * Return the characteristics of the tiger.
+     * @return The traits of the species.
+     */
+    protected AnimalTraits getTraits()
+    {
+        return TRAITS;
+    }
+
+    /**
+     * Plan what the tiger does in a step of the two-phase step mode.
+     * This is what act does, but the tiger only records what it means to do.
+     * @param intents The intents of the organisms for this step.
+     */
+    protected void plan(StepIntents intents)
+    {
+        foodLevel--;
+        if(foodLevel <= 0) {
+            intents.die(this);
+        }
+        else if(!sleepsIn(field.getClock().getPhase())) {
+            meet(intents);
+            forage(intents, DIET);
         }
     }
     
+    /**
+     * Create a newborn tiger at the given location.
+     * @param field The field the cub is born into.
+     * @param location Where the cub is born.
+     * @return The cub.
+     */
+    protected Organism offspring(Field field, Location location)
+    {
+        return Tiger.create(false, field, location, randomGender());
+    }
+
     /**
      * Make this tiger more hungry. This could result in the tiger's death.
      */
@@ -117,54 +209,42 @@ public class Tiger extends Predator
 
     /**
      * Look for animals adjacent to or a distance from the current location.
-     * Only the first live animal is eaten.
+     * The nearest live animal is eaten, picked at random if several are equally near.
      * @return Where food was found, or null if it wasn't.
      */
     protected Location findFood()
     {
         Field field = getField();
-        List<Location> adjacent = field.adjacentNLocations(getLocation(), 2);
-        Iterator<Location> it = adjacent.iterator();
-        while(it.hasNext()) {
-            Location where = it.next();
-            Object animal = field.getObjectAt(where);
-            if(animal instanceof Tortoise) {
-                Tortoise tortoise = (Tortoise) animal;
-                if(tortoise.isAlive()) { 
-                    tortoise.setDead();
-                    foodLevel = TORTOISE_FOOD_VALUE;
-                    return where;
-                }
-            }
-            
-            if(animal instanceof Jaguar) {
-                Jaguar jaguar = (Jaguar) animal;
-                if(jaguar.isAlive()) { 
-                    jaguar.setDead();
-                    foodLevel = JAGUAR_FOOD_VALUE;
-                    return where;
-                }
-            }
-            
-            if(animal instanceof Bear) {
-                Bear bear = (Bear) animal;
-                if(bear.isAlive()) { 
-                    bear.setDead();
-                    foodLevel = BEAR_FOOD_VALUE;
-                    return where;
-                }
-            }
-            
-            if(animal instanceof Deer) {
-                Deer deer = (Deer) animal;
-                if(deer.isAlive()) { 
-                    deer.setDead();
-                    foodLevel = DEER_FOOD_VALUE;
-                    return where;
-                }
-            }
+        Location where = field.nearestOccupant(getLocation(), 3, DIET);
+        if(where != null) {
+            eat((Organism) field.getObjectAt(where));
         }
-        return null;
+        return where;
+    }
+
+    /**
+     * Eat the given animal, which dies.
+     * @param food The animal being eaten.
+     */
+    protected void eat(Organism food)
+    {
+        switch(food.getSpecies()) {
+            case TORTOISE:
+                foodLevel = TORTOISE_FOOD_VALUE;
+                break;
+            case JAGUAR:
+                foodLevel = JAGUAR_FOOD_VALUE;
+                break;
+            case BEAR:
+                foodLevel = BEAR_FOOD_VALUE;
+                break;
+            case DEER:
+                foodLevel = DEER_FOOD_VALUE;
+                break;
+            default:
+                break;
+        }
+        food.setDead();
     }
     
     /**
@@ -175,14 +255,14 @@ public class Tiger extends Predator
     protected void giveBirth(List<Organism> newTigers)
     {
         // New tigers are born into adjacent locations.
-        // Get a list of adjacent free locations.
+        // Walk the adjacent free locations.
         Field field = getField();
-        List<Location> free = field.getFreeAdjacentLocations(getLocation());
         int births = breed();
-        for(int b = 0; b < births && free.size() > 0; b++) {
-            Location loc = free.remove(0);
-            Tiger cub = new Tiger(false, field, loc, randomGender());
-            newTigers.add(cub);
+        try(Field.Neighbourhood free = field.neighbours(getLocation(), 1)) {
+            for(int b = 0; b < births && free.nextFree(); b++) {
+                Tiger cub = Tiger.create(false, field, free.getLocation(), randomGender());
+                newTigers.add(cub);
+            }
         }
     }
     
@@ -195,14 +275,14 @@ public class Tiger extends Predator
     protected void giveBirth(List<Organism> newTigers, int steps)
     {
         // New tigers are born into adjacent locations.
-        // Get a list of further apart free locations.
+        // Walk the further apart free locations.
         Field field = getField();
-        List<Location> free = field.getFreeNAdjacentLocations(getLocation(), steps);
         int births = breed();
-        for(int b = 0; b < births && free.size() > 0; b++) {
-            Location loc = free.remove(0);
-            Tiger cub = new Tiger(false, field, loc, randomGender());
-            newTigers.add(cub);
+        try(Field.Neighbourhood free = field.neighbours(getLocation(), steps + 1)) {
+            for(int b = 0; b < births && free.nextFree(); b++) {
+                Tiger cub = Tiger.create(false, field, free.getLocation(), randomGender());
+                newTigers.add(cub);
+            }
         }
     }
     
@@ -211,7 +291,7 @@ public class Tiger extends Predator
      * if it can breed.
      * @return The number of births (may be zero).
      */
-    private int breed()
+    protected int breed()
     {
         int births = 0;
         if(rand.nextDouble() <= BREEDING_PROBABILITY) {
@@ -226,6 +306,6 @@ public class Tiger extends Predator
      */
     protected boolean canBreed()
     {
-        return age >= BREEDING_AGE;
+        return getAge() >= BREEDING_AGE;
     }
 }
\ No newline at end of file
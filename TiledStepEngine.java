@@ -0,0 +1,193 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Runs a step of the simulation on several threads at once.
+ *
+ * The field is divided into square tiles, and the tiles are coloured like
+ * a checkerboard with four colours, so that no two tiles of one colour
+ * touch. The tiles of each colour are run concurrently, one colour after
+ * another. An organism never reaches further than a tile from its own,
+ * so organisms in tiles being run at the same time never meet.
+ *
+ * Animals asleep at the step's time of day only rest.
+ *
+ * Each organism is run by the tile it starts the step in, even if it moves
+ * into another tile during the step. Each organism draws its random numbers
+ * from its own stream, and the organism list is rebuilt in tile order, so the
+ * results depend only on the seed and not on the number of threads.
+ *
+ * @author Anirudh George and Ahmet Bayazitoglu
+ * @version 2022.03.02
+ */
+public class TiledStepEngine
+{
+    // The side of each tile, in locations. This is a whole number of field
+    // tiles, and more than the furthest an organism can reach in a step.
+    private static final int TILE_SIZE = 2 * Field.TILE_SIZE;
+
+    // The threads the tiles are run on.
+    private ForkJoinPool pool;
+
+    /**
+     * Create an engine that runs on the given number of threads.
+     * @param threads The number of threads. Must be greater than zero.
+     */
+    public TiledStepEngine(int threads)
+    {
+        pool = new ForkJoinPool(threads);
+    }
+
+    /**
+     * Let all the organisms act for one step. Dead organisms are dropped
+     * from the list, and newborn organisms are added to the end of it.
+     * @param organisms The organisms in the field.
+     * @param field The field the organisms are in.
+     * @param step The number of the step being run.
+     */
+    public void step(List<Organism> organisms, Field field, int step)
+    {
+        int tileRows = (field.getDepth() + TILE_SIZE - 1) / TILE_SIZE;
+        int tileCols = (field.getWidth() + TILE_SIZE - 1) / TILE_SIZE;
+        // The tiles draw their random numbers with the caller's seed.
+        long seed = Randomizer.getSeed();
+        TileTask[] tasks = new TileTask[tileRows * tileCols];
+        for(int tile = 0; tile < tasks.length; tile++) {
+            tasks[tile] = new TileTask(seed, step, field.getClock().getPhase());
+        }
+
+        // Give each organism to the tile it starts the step in.
+        for(Organism organism : organisms) {
+            Location location = organism.getLocation();
+            if(organism.isAlive() && location != null) {
+                int tile = (location.getRow() / TILE_SIZE) * tileCols + location.getCol() / TILE_SIZE;
+                tasks[tile].organisms.add(organism);
+            }
+            else if(!organism.isAlive()) {
+                field.getPool().release(organism);
+            }
+        }
+
+        // Run the tiles of each colour together. Newborns are scheduled
+        // in the age calendar from several threads meanwhile.
+        field.getAgeCalendar().setConcurrent(true);
+        try {
+            for(int colour = 0; colour < 4; colour++) {
+                List<TileTask> batch = new ArrayList<>();
+                for(int tileRow = colour / 2; tileRow < tileRows; tileRow += 2) {
+                    for(int tileCol = colour % 2; tileCol < tileCols; tileCol += 2) {
+                        TileTask task = tasks[tileRow * tileCols + tileCol];
+                        if(!task.organisms.isEmpty()) {
+                            batch.add(task);
+                        }
+                    }
+                }
+                if(!batch.isEmpty()) {
+                    pool.invoke(new Batch(batch));
+                }
+            }
+        }
+        finally {
+            field.getAgeCalendar().setConcurrent(false);
+        }
+
+        // Rebuild the list: the survivors, then the newborns, in tile order.
+        // The dead are handed back to the field's pool once the step is over.
+        organisms.clear();
+        for(TileTask task : tasks) {
+            for(Organism organism : task.organisms) {
+                if(organism.isAlive()) {
+                    organisms.add(organism);
+                }
+                else {
+                    field.getPool().release(organism);
+                }
+            }
+        }
+        for(TileTask task : tasks) {
+            organisms.addAll(task.newborns);
+        }
+    }
+
+    /**
+     * @return The number of threads the engine runs on.
+     */
+    public int getThreads()
+    {
+        return pool.getParallelism();
+    }
+
+    /**
+     * Stop the engine's threads.
+     */
+    public void shutdown()
+    {
+        pool.shutdown();
+    }
+
+    /**
+     * Runs a batch of tiles that do not touch each other.
+     */
+    private static class Batch extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        private List<TileTask> tasks;
+
+        Batch(List<TileTask> tasks)
+        {
+            this.tasks = tasks;
+        }
+
+        protected void compute()
+        {
+            ForkJoinTask.invokeAll(tasks);
+        }
+    }
+
+    /**
+     * Lets the organisms of one tile act.
+     */
+    private static class TileTask extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        // The seed of the simulation, the step being run and its time of day.
+        private long seed;
+        private int step;
+        private Clock.Phase phase;
+        // The organisms that started the step in the tile.
+        private List<Organism> organisms = new ArrayList<>();
+        // The organisms born in the tile during the step.
+        private List<Organism> newborns = new ArrayList<>();
+
+        TileTask(long seed, int step, Clock.Phase phase)
+        {
+            this.seed = seed;
+            this.step = step;
+            this.phase = phase;
+        }
+
+        protected void compute()
+        {
+            Randomizer.setSeed(seed);
+            try {
+                for(Organism organism : organisms) {
+                    if(organism.sleepsIn(phase)) {
+                        organism.rest();
+                    }
+                    else {
+                        Randomizer.beginStream(step, organism.getRandomKey());
+                        organism.act(newborns);
+                    }
+                }
+            }
+            finally {
+                Randomizer.endStream();
+            }
+        }
+    }
+}
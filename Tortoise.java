@@ -1,6 +1,6 @@
+import java.io.IOException;
 import java.util.List;
 import java.util.Random;
-import java.util.Iterator;
 
 /**
  * A simple model of a tortoise on the rainforest floor.
@@ -25,15 +25,21 @@ public class Tortoise extends Prey
     private static final int PLANT_FOOD_VALUE = 16;
     // A shared random number generator to control breeding.
     private static final Random rand = Randomizer.getRandom();
+    // The species a tortoise eats.
+    private static final int DIET = Species.PLANT.getMask();
     //The maximum amount of food a tortoise can have
     private static final int MAX_FOOD_LEVEL = 160;
+    // The characteristics of a tortoise, for the struct-of-arrays simulation
+    // and for scheduling its sleep.
+    static final AnimalTraits TRAITS =
+        new AnimalTraits(BREEDING_AGE, MAX_AGE, BREEDING_PROBABILITY, MAX_LITTER_SIZE,
+                         PLANT_FOOD_VALUE,
+                         PLANT_FOOD_VALUE)
+            .eats(Species.PLANT, PLANT_FOOD_VALUE)
+            .sleepsIn(Clock.Phase.NIGHT);
     
-    // The tortoises' age.
-    private int age;
     //The tortoises' food level, which is increased by eating plants.
     private int foodLevel;
-    //The weather
-    private Weather weather = new Weather();
     /**
      * Create a new tortoise. A tortoise may be created with age
      * zero (a new born) or with a random age.
@@ -46,13 +52,43 @@ public class Tortoise extends Prey
     public Tortoise(boolean randomAge, Field field, Location location, Gender gender)
     {
         super(field, location, gender);
-        age = 0;
+        init(randomAge);
+        updateMatingIndex();
+    }
+    
+    /**
+     * Create a tortoise, reusing a dead one from the field's pool if there is one.
+     * 
+     * @param randomAge If true, the tortoise will have a random age.
+     * @param field The field currently occupied.
+     * @param location The location within the field.
+     * @param gender The gender of the tortoise
+     * @return The tortoise.
+     */
+    public static Tortoise create(boolean randomAge, Field field, Location location, Gender gender)
+    {
+        Tortoise tortoise = (Tortoise) field.getPool().obtain(Species.TORTOISE);
+        if(tortoise == null) {
+            return new Tortoise(randomAge, field, location, gender);
+        }
+        tortoise.revive(field, location, gender);
+        tortoise.init(randomAge);
+        tortoise.updateMatingIndex();
+        return tortoise;
+    }
+    
+    /**
+     * Set the age and food level of a new tortoise.
+     * @param randomAge If true, the tortoise will have a random age.
+     */
+    private void init(boolean randomAge)
+    {
         if(randomAge) {
-            age = rand.nextInt(MAX_AGE);
+            setAge(rand.nextInt(MAX_AGE));
             foodLevel = rand.nextInt(PLANT_FOOD_VALUE);
         }
         else {
-            age = 0;
+            setAge(0);
             foodLevel = PLANT_FOOD_VALUE;
         }
     }
@@ -64,12 +100,8 @@ public class Tortoise extends Prey
      */
     protected void act(List<Organism> newTortoises)
     {
-        incrementAge();
         incrementHunger();
-        if(weather.dayCounter == 3 ){
-            sleep();
-        }
-        else if(isAlive()) {
+        if(isAlive()) {
             meet(newTortoises);  
             Location newLocation = findFood();
             // Try to move into a free location.
@@ -87,50 +119,106 @@ public class Tortoise extends Prey
         }
     }
 
+    /**
+     * Write the tortoise's own state to a checkpoint.
+     * @param out The checkpoint being written.
+     */
+    protected void writeState(Checkpoint.Output out) throws IOException
+    {
+        super.writeState(out);
+        out.putInt(foodLevel);
+    }
+    
+    /**
+     * Read the tortoise's own state from a checkpoint.
+     * @param in The checkpoint being read.
+     */
+    protected void readState(Checkpoint.Input in) throws IOException
+    {
+        super.readState(in);
+        foodLevel = in.getInt();
+    }
+
+    /**
+     * Sleep through a step: the tortoise only grows hungrier,
+     * which may kill it.
+     */
+    protected void rest()
+    {
+        incrementHunger();
+    }
+    
+    /**
+     * Return the characteristics of the tortoise.
+     * @return The traits of the species.
+     */
+    protected AnimalTraits getTraits()
+    {
+        return TRAITS;
+    }
+
+    /**
+     * Plan what the tortoise does in a step of the two-phase step mode.
+     * This is what act does, but the tortoise only records what it means to do.
+     * @param intents The intents of the organisms for this step.
+     */
+    protected void plan(StepIntents intents)
+    {
+        foodLevel--;
+        if(foodLevel <= 0) {
+            intents.die(this);
+        }
+        else if(!sleepsIn(field.getClock().getPhase())) {
+            meet(intents);
+            forage(intents, DIET);
+        }
+    }
+    
+    /**
+     * Create a newborn tortoise at the given location.
+     * @param field The field the hatchling is born into.
+     * @param location Where the hatchling is born.
+     * @return The hatchling.
+     */
+    protected Organism offspring(Field field, Location location)
+    {
+        return Tortoise.create(false, field, location, randomGender());
+    }
+
     /**
      * Look for plants adjacent to or a distance from the current location.
-     * Only the first live plant is eaten.
+     * The nearest live plant is eaten, picked at random if several are equally near.
      * @return Where food was found, or null if it wasn't.
      */
     private Location findFood()
     {
         Field field = getField();
-        List<Location> adjacent = field.adjacentNLocations(getLocation(), 2);
-        Iterator<Location> it = adjacent.iterator();
-        while(it.hasNext()) {
-            Location where = it.next();
-            Object organism = field.getObjectAt(where);
-            if(organism instanceof Plant) {
-                Plant plant = (Plant) organism;
-                if(plant.isAlive()) { 
-                    plant.setDead();
-                    foodLevel = PLANT_FOOD_VALUE;
-                    return where;
-                }
-            }
+        Location where = field.nearestOccupant(getLocation(), 3, DIET);
+        if(where != null) {
+            eatAt(where);
         }
-        return null;
+        return where;
     }
-    
+
     /**
-     * Make this tortoise more hungry. This could result in the tortoises' death.
+     * Eat the given plant, which dies.
+     * @param food The plant being eaten, or null for a plant of the plant layer.
      */
-    private void incrementHunger()
+    protected void eat(Organism food)
     {
-        foodLevel--;
-        if(foodLevel <= 0) {
-            setDead();
+        foodLevel = PLANT_FOOD_VALUE;
+        if(food != null) {
+            food.setDead();
         }
     }
     
     /**
-     * Increase the age.
-     * This could result in the tortoises' death.
+     * Make this tortoise more hungry. This could result in the tortoises' death.
      */
-    private void incrementAge()
+    private void incrementHunger()
     {
-        age++;
-        if(age > MAX_AGE) {
+        foodLevel--;
+        if(foodLevel <= 0) {
             setDead();
         }
     }
@@ -143,14 +231,14 @@ public class Tortoise extends Prey
     protected void giveBirth(List<Organism> newTortoises)
     {
         // New tortoises are born into adjacent locations.
-        // Get a list of adjacent free locations.
+        // Walk the adjacent free locations.
         Field field = getField();
-        List<Location> free = field.getFreeAdjacentLocations(getLocation());
         int births = breed();
-        for(int b = 0; b < births && free.size() > 0; b++) {
-            Location loc = free.remove(0);
-            Tortoise hatchling = new Tortoise(false, field, loc, randomGender());
-            newTortoises.add(hatchling);
+        try(Field.Neighbourhood free = field.neighbours(getLocation(), 1)) {
+            for(int b = 0; b < births && free.nextFree(); b++) {
+                Tortoise hatchling = Tortoise.create(false, field, free.getLocation(), randomGender());
+                newTortoises.add(hatchling);
+            }
         }
     }
     
@@ -163,14 +251,14 @@ public class Tortoise extends Prey
     protected void giveBirth(List<Organism> newTortoises, int steps)
     {
         // New tortoises are born into adjacent locations.
-        // Get a list of further apart free locations.
+        // Walk the further apart free locations.
         Field field = getField();
-        List<Location> free = field.getFreeNAdjacentLocations(getLocation(), steps);
         int births = breed();
-        for(int b = 0; b < births && free.size() > 0; b++) {
-            Location loc = free.remove(0);
-            Tortoise hatchling = new Tortoise(false, field, loc, randomGender());
-            newTortoises.add(hatchling);
+        try(Field.Neighbourhood free = field.neighbours(getLocation(), steps + 1)) {
+            for(int b = 0; b < births && free.nextFree(); b++) {
+                Tortoise hatchling = Tortoise.create(false, field, free.getLocation(), randomGender());
+                newTortoises.add(hatchling);
+            }
         }
     }
 
@@ -179,7 +267,7 @@ public class Tortoise extends Prey
      * if it can breed.
      * @return The number of births (may be zero).
      */
-    private int breed()
+    protected int breed()
     {
         int births = 0;
         if(rand.nextDouble() <= BREEDING_PROBABILITY) {
@@ -193,6 +281,6 @@ public class Tortoise extends Prey
      * @return A value determining whether the tortoises can breed or not.
      */
     protected boolean canBreed() {
-        return (age >= BREEDING_AGE);
+        return (getAge() >= BREEDING_AGE);
     }
 }
\ No newline at end of file
@@ -1,6 +1,6 @@
+import java.io.IOException;
 import java.util.Random;
 import java.util.List;
-import java.util.ArrayList;
 
 /**
  * A class showing the effects of time and weather
@@ -14,15 +14,16 @@ public class Weather
     public int dayCounter;
     public String weather;
     private String dayTime;
-    private Simulator simulator;
-    private List<String> weatherList = new ArrayList<>(List.of("Sunny","rainy","cloudy"));
+    private static final List<String> weatherList = List.of("Sunny","rainy","cloudy");
+    // The weather shown is only for display, so it draws from its own
+    // generator rather than the simulation's seeded random numbers.
     private Random rand = new Random();
     /**
      * Constructor for objects of class Weather
      */
     public Weather()
     {
-        weather = new String();
+        weather = "";
     }
     
     /**
@@ -66,6 +67,29 @@ public class Weather
         return dayCounter;
     }
     
+    /**
+     * Write the weather to a checkpoint. The time of day follows from the counter.
+     * @param out The checkpoint being written.
+     */
+    void write(Checkpoint.Output out) throws IOException
+    {
+        out.putInt(noRainCounter);
+        out.putInt(dayCounter);
+        out.putByte(weatherList.indexOf(weather));
+    }
+    
+    /**
+     * Read the weather from a checkpoint.
+     * @param in The checkpoint being read.
+     */
+    void read(Checkpoint.Input in) throws IOException
+    {
+        noRainCounter = in.getInt();
+        dayCounter = in.getInt();
+        int index = in.getByte();
+        weather = index < 0 ? "" : weatherList.get(index);
+    }
+    
     /**
      * get random weather in each step 
      */